@@ -1,5 +1,6 @@
 package com.aigreentick.notification.config;
 
+import com.aigreentick.notification.service.SmtpTransportPool;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -25,6 +26,18 @@ public class MailConfig {
     @Value("${spring.mail.password:}")
     private String password;
 
+    @Value("${mail.pool.size:4}")
+    private int poolSize;
+
+    @Value("${mail.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${mail.pool.idle-timeout-ms:30000}")
+    private long idleTimeoutMs;
+
+    @Value("${mail.pool.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMs;
+
     @Bean
     public JavaMailSender javaMailSender() {
         log.info("Configuring JavaMailSender with host: {}, port: {}, username: {}", host, port, username);
@@ -40,9 +53,21 @@ public class MailConfig {
         props.put("mail.smtp.auth", "true");
         props.put("mail.smtp.starttls.enable", "true");
         props.put("mail.smtp.starttls.required", "true");
+        // Deliver a multi-recipient message to the accepted recipients even when some RCPT TO commands are rejected
+        props.put("mail.smtp.sendpartial", "true");
         props.put("mail.debug", "true");
 
         log.info("JavaMailSender configured successfully");
         return mailSender;
     }
+
+    @Bean
+    public SmtpTransportPool smtpTransportPool(JavaMailSender javaMailSender) {
+        if (!(javaMailSender instanceof JavaMailSenderImpl mailSender)) {
+            throw new IllegalStateException("SMTP transport pool requires a JavaMailSenderImpl");
+        }
+        log.info("Configuring SMTP transport pool with size: {}, maxMessagesPerConnection: {}, idleTimeoutMs: {}",
+                poolSize, maxMessagesPerConnection, idleTimeoutMs);
+        return new SmtpTransportPool(mailSender, poolSize, maxMessagesPerConnection, idleTimeoutMs, borrowTimeoutMs);
+    }
 }
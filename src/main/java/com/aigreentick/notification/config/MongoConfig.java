@@ -1,18 +1,55 @@
 package com.aigreentick.notification.config;
 
+import com.aigreentick.notification.entity.DeadDeviceToken;
+import com.aigreentick.notification.entity.DeliveryRecord;
+import com.aigreentick.notification.entity.EmailNotificationLog;
+import com.aigreentick.notification.entity.NotificationContent;
+import com.aigreentick.notification.entity.PushNotificationLog;
+import com.aigreentick.notification.service.DeliveryStatus;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 @EnableMongoRepositories(basePackages = "com.aigreentick.notification.repository")
 @EnableMongoAuditing
+@Slf4j
 public class MongoConfig extends AbstractMongoClientConfiguration {
 
+    @Value("${notification.log.time-series:false}")
+    private boolean logTimeSeries;
+
+    @Value("${notification.log.retention-days:90}")
+    private long logRetentionDays;
+
+    @Value("${notification.push.dead-token-retention-days:90}")
+    private long deadTokenRetentionDays;
+
     @Override
     protected String getDatabaseName() {
         return "notificationdb";
@@ -27,4 +64,157 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     public LocalValidatorFactoryBean validator() {
         return new LocalValidatorFactoryBean();
     }
+
+    /**
+     * Create the delivery log collection with its retention and indexes during startup, before the first
+     * log entry would create it as a plain collection. The legacy log collections keep their retention and
+     * indexes until they are dropped. Dead device tokens get their retention here as well.
+     */
+    @Bean
+    public InitializingBean notificationLogCollections(MongoTemplate mongoTemplate) {
+        return () -> {
+            try {
+                prepareLogCollection(mongoTemplate, DeliveryRecord.class, new LogFields("ch", "r", "ok", "t"), true);
+                prepareLogCollection(mongoTemplate, EmailNotificationLog.class, new LogFields(null, "to", "success", "sentAt"), false);
+                prepareLogCollection(mongoTemplate, PushNotificationLog.class, new LogFields(null, "deviceId", "success", "sentAt"), false);
+                prepareContentCollection(mongoTemplate);
+                prepareDeliveredFlag(mongoTemplate);
+                if (deadTokenRetentionDays > 0) {
+                    ensureTtlIndex(mongoTemplate, mongoTemplate.indexOps(DeadDeviceToken.class),
+                            mongoTemplate.getCollectionName(DeadDeviceToken.class), "markedAt",
+                            TimeUnit.DAYS.toSeconds(deadTokenRetentionDays));
+                }
+            } catch (Exception e) {
+                log.warn("Failed to prepare notification log collections: {}", e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Stored field names of a log collection; channel is null for single-channel collections
+     */
+    private record LogFields(String channel, String recipient, String success, String sentAt) {
+    }
+
+    private void prepareLogCollection(MongoTemplate mongoTemplate, Class<?> type, LogFields fields, boolean create) {
+        String collection = mongoTemplate.getCollectionName(type);
+        boolean exists = mongoTemplate.collectionExists(type);
+        if (!exists && !create) {
+            return;
+        }
+        boolean timeSeries = exists ? isTimeSeries(mongoTemplate, collection)
+                : createLogCollection(mongoTemplate, collection, fields);
+        if (logTimeSeries && !timeSeries) {
+            log.warn("{} already exists as a regular collection; time-series storage only applies to new collections", collection);
+        }
+
+        IndexOperations indexOps = mongoTemplate.indexOps(type);
+        if (timeSeries) {
+            // Time-series collections expire whole buckets through the collection option, not a TTL index
+            if (logRetentionDays > 0) {
+                mongoTemplate.getDb().runCommand(new Document("collMod", collection)
+                        .append("expireAfterSeconds", TimeUnit.DAYS.toSeconds(logRetentionDays)));
+            }
+        } else if (logRetentionDays > 0) {
+            ensureTtlIndex(mongoTemplate, indexOps, collection, fields.sentAt(), TimeUnit.DAYS.toSeconds(logRetentionDays));
+        }
+
+        // Ending in (sentAt, _id) lets log queries page by keyset straight off the index
+        indexOps.ensureIndex(channelFirst(fields).on(fields.recipient(), Sort.Direction.ASC)
+                .on(fields.sentAt(), Sort.Direction.DESC).on("_id", Sort.Direction.DESC));
+        indexOps.ensureIndex(channelFirst(fields).on(fields.success(), Sort.Direction.ASC)
+                .on(fields.sentAt(), Sort.Direction.DESC).on("_id", Sort.Direction.DESC));
+        if (fields.channel() != null) {
+            indexOps.ensureIndex(channelFirst(fields).on(fields.sentAt(), Sort.Direction.DESC).on("_id", Sort.Direction.DESC));
+        }
+        log.info("Prepared {} ({}, retention: {} days)", collection, timeSeries ? "time-series" : "regular",
+                logRetentionDays > 0 ? logRetentionDays : "unlimited");
+    }
+
+    /**
+     * Give records written before the ok flag existed their flag from their status, and drop the (ch, s, t, _id)
+     * index the flag replaced. Records without the flag are found through the (ch, ok, t, _id) index, so once they
+     * are all filled in this costs two index lookups per start. Filling in a time-series collection needs MongoDB 7.0.
+     */
+    private void prepareDeliveredFlag(MongoTemplate mongoTemplate) {
+        Criteria unflagged = Criteria.where("channel").in(EnumSet.allOf(DeliveryRecord.Channel.class)).and("delivered").is(null);
+        mongoTemplate.updateMulti(new Query(new Criteria().andOperator(unflagged, Criteria.where("status").is(DeliveryStatus.DELIVERED))),
+                new Update().set("delivered", true), DeliveryRecord.class);
+        mongoTemplate.updateMulti(new Query(unflagged), new Update().set("delivered", false), DeliveryRecord.class);
+
+        IndexOperations indexOps = mongoTemplate.indexOps(DeliveryRecord.class);
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            if (index.getIndexFields().stream().map(IndexField::getKey).toList().equals(List.of("ch", "s", "t", "_id"))) {
+                indexOps.dropIndex(index.getName());
+            }
+        }
+    }
+
+    /**
+     * Expire shared content a retention and a half after it was last used. Content is refreshed at most once per
+     * half retention, so a log entry written just after a refresh still finds its content until it expires itself.
+     */
+    private void prepareContentCollection(MongoTemplate mongoTemplate) {
+        if (logRetentionDays <= 0) {
+            return;
+        }
+        // Content stored before lastUsedAt was kept starts its retention now
+        mongoTemplate.updateMulti(new Query(Criteria.where("lastUsedAt").exists(false)),
+                new Update().set("lastUsedAt", LocalDateTime.now()), NotificationContent.class);
+        ensureTtlIndex(mongoTemplate, mongoTemplate.indexOps(NotificationContent.class),
+                mongoTemplate.getCollectionName(NotificationContent.class), "lastUsedAt",
+                TimeUnit.DAYS.toSeconds(logRetentionDays) * 3 / 2);
+    }
+
+    private static Index channelFirst(LogFields fields) {
+        Index index = new Index();
+        return fields.channel() != null ? index.on(fields.channel(), Sort.Direction.ASC) : index;
+    }
+
+    /**
+     * @return whether the collection was created as a time-series collection
+     */
+    private boolean createLogCollection(MongoTemplate mongoTemplate, String collection, LogFields fields) {
+        if (!logTimeSeries) {
+            mongoTemplate.createCollection(collection);
+            return false;
+        }
+        TimeSeriesOptions timeSeriesOptions = new TimeSeriesOptions(fields.sentAt()).granularity(TimeSeriesGranularity.SECONDS);
+        if (fields.channel() != null) {
+            // Records of one channel are bucketed together
+            timeSeriesOptions.metaField(fields.channel());
+        }
+        CreateCollectionOptions options = new CreateCollectionOptions().timeSeriesOptions(timeSeriesOptions);
+        if (logRetentionDays > 0) {
+            options.expireAfter(logRetentionDays, TimeUnit.DAYS);
+        }
+        mongoTemplate.getDb().createCollection(collection, options);
+        return true;
+    }
+
+    private static boolean isTimeSeries(MongoTemplate mongoTemplate, String collection) {
+        Document info = mongoTemplate.getDb()
+                .listCollections()
+                .filter(new Document("name", collection))
+                .first();
+        return info != null && "timeseries".equals(info.getString("type"));
+    }
+
+    /**
+     * Create a TTL index on the field, or change its expiry in place when the retention was reconfigured
+     */
+    private void ensureTtlIndex(MongoTemplate mongoTemplate, IndexOperations indexOps, String collection, String field,
+                                long expireAfterSeconds) {
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            if (index.isIndexForFields(List.of(field)) && index.getExpireAfter().isPresent()) {
+                if (index.getExpireAfter().get().getSeconds() != expireAfterSeconds) {
+                    mongoTemplate.getDb().runCommand(new Document("collMod", collection)
+                            .append("index", new Document("name", index.getName())
+                                    .append("expireAfterSeconds", expireAfterSeconds)));
+                }
+                return;
+            }
+        }
+        indexOps.ensureIndex(new Index().on(field, Sort.Direction.ASC).expire(expireAfterSeconds, TimeUnit.SECONDS));
+    }
 }
@@ -0,0 +1,55 @@
+package com.aigreentick.notification.config;
+
+import com.aigreentick.notification.service.RateLimiterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+@Slf4j
+public class RateLimitConfig {
+
+    @Value("${notification.rate-limit.email.permits-per-second:10}")
+    private double emailPermitsPerSecond;
+
+    @Value("${notification.rate-limit.email.burst:20}")
+    private int emailBurst;
+
+    @Value("${notification.rate-limit.email.max-wait-ms:30000}")
+    private long emailMaxWaitMs;
+
+    @Value("${notification.rate-limit.push.permits-per-second:5000}")
+    private double pushPermitsPerSecond;
+
+    @Value("${notification.rate-limit.push.burst:2000}")
+    private int pushBurst;
+
+    @Value("${notification.rate-limit.push.max-wait-ms:30000}")
+    private long pushMaxWaitMs;
+
+    @Value("${spring.mail.username:}")
+    private String mailUsername;
+
+    @Value("${firebase.project-id:aigreentick-40943}")
+    private String firebaseProjectId;
+
+    @Bean
+    public RateLimiterRegistry rateLimiterRegistry() {
+        log.info("Configuring rate limits - email: {}/s burst {}, push: {}/s burst {}",
+                emailPermitsPerSecond, emailBurst, pushPermitsPerSecond, pushBurst);
+
+        Map<RateLimiterRegistry.Channel, RateLimiterRegistry.Limits> limits = new EnumMap<>(RateLimiterRegistry.Channel.class);
+        limits.put(RateLimiterRegistry.Channel.EMAIL, new RateLimiterRegistry.Limits(emailPermitsPerSecond, emailBurst, emailMaxWaitMs));
+        limits.put(RateLimiterRegistry.Channel.PUSH, new RateLimiterRegistry.Limits(pushPermitsPerSecond, pushBurst, pushMaxWaitMs));
+
+        Map<RateLimiterRegistry.Channel, String> credentials = new EnumMap<>(RateLimiterRegistry.Channel.class);
+        credentials.put(RateLimiterRegistry.Channel.EMAIL, mailUsername);
+        credentials.put(RateLimiterRegistry.Channel.PUSH, firebaseProjectId);
+
+        return new RateLimiterRegistry(limits, credentials);
+    }
+}
@@ -0,0 +1,76 @@
+package com.aigreentick.notification.config;
+
+import com.aigreentick.notification.entity.EmailTemplate;
+import com.aigreentick.notification.entity.PushNotificationTemplate;
+import com.aigreentick.notification.repository.EmailTemplateRepository;
+import com.aigreentick.notification.repository.PushNotificationTemplateRepository;
+import com.aigreentick.notification.service.ActiveTemplateCache;
+import com.aigreentick.notification.service.TemplateStatisticsCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@Configuration
+public class TemplateCacheConfig {
+
+    @Value("${notification.template-cache.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    @Value("${notification.template-statistics.ttl-ms:30000}")
+    private long statisticsTtlMs;
+
+    @Bean(destroyMethod = "close")
+    public ActiveTemplateCache<EmailTemplate> emailTemplateCache(EmailTemplateRepository repository) {
+        return new ActiveTemplateCache<>(
+                "email",
+                EmailTemplate::getId,
+                EmailTemplate::getName,
+                EmailTemplate::getVersion,
+                template -> Boolean.TRUE.equals(template.getIsActive()),
+                repository::findByIsActiveTrue,
+                repository::findByNameIgnoreCase,
+                refreshIntervalMs
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    public ActiveTemplateCache<PushNotificationTemplate> pushNotificationTemplateCache(PushNotificationTemplateRepository repository) {
+        return new ActiveTemplateCache<>(
+                "push",
+                PushNotificationTemplate::getId,
+                PushNotificationTemplate::getTitle,
+                PushNotificationTemplate::getVersion,
+                template -> Boolean.TRUE.equals(template.getIsActive()),
+                repository::findByIsActiveTrue,
+                repository::findByTitleIgnoreCase,
+                refreshIntervalMs
+        );
+    }
+
+    @Bean
+    public TemplateStatisticsCache<EmailTemplate> emailTemplateStatistics(MongoTemplate mongoTemplate) {
+        return new TemplateStatisticsCache<>(
+                "email",
+                mongoTemplate,
+                EmailTemplate.class,
+                template -> Boolean.TRUE.equals(template.getIsActive()),
+                EmailTemplate::getCreatedBy,
+                null,
+                statisticsTtlMs
+        );
+    }
+
+    @Bean
+    public TemplateStatisticsCache<PushNotificationTemplate> pushNotificationTemplateStatistics(MongoTemplate mongoTemplate) {
+        return new TemplateStatisticsCache<>(
+                "push",
+                mongoTemplate,
+                PushNotificationTemplate.class,
+                template -> Boolean.TRUE.equals(template.getIsActive()),
+                PushNotificationTemplate::getCreatedBy,
+                PushNotificationTemplate::getImageUrl,
+                statisticsTtlMs
+        );
+    }
+}
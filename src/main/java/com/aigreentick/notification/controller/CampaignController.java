@@ -0,0 +1,115 @@
+package com.aigreentick.notification.controller;
+
+import com.aigreentick.notification.dto.ApiResponse;
+import com.aigreentick.notification.dto.NotificationResponse;
+import com.aigreentick.notification.service.CampaignService;
+import com.aigreentick.notification.service.RecipientReader;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Bulk sends whose recipient list is uploaded as an NDJSON or CSV stream instead of a JSON array.
+ * Each endpoint accepts either a multipart upload (part "recipients") or the raw stream as the request body.
+ */
+@RestController
+@RequestMapping("/campaigns")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class CampaignController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final CampaignService campaignService;
+
+    /**
+     * Send an email campaign to recipients from an uploaded file
+     * POST /api/v1/campaigns/email (multipart/form-data)
+     */
+    @PostMapping(value = "/email", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendEmailCampaignUpload(
+            @RequestPart("recipients") MultipartFile recipients,
+            @RequestParam String title,
+            @RequestParam String body,
+            @RequestParam(required = false) List<String> cc,
+            @RequestParam(required = false) RecipientReader.Format format) throws IOException {
+
+        log.info("Received email campaign upload: {} ({} bytes)", recipients.getOriginalFilename(), recipients.getSize());
+        RecipientReader.Format resolved = format != null ? format
+                : RecipientReader.Format.detect(recipients.getContentType(), recipients.getOriginalFilename());
+        try (InputStream in = recipients.getInputStream()) {
+            return toResponse(campaignService.sendEmailCampaign(in, resolved, title, body, cc));
+        }
+    }
+
+    /**
+     * Send an email campaign to recipients streamed in the request body
+     * POST /api/v1/campaigns/email (application/x-ndjson or text/csv)
+     */
+    @PostMapping(value = "/email", consumes = {NDJSON, CSV, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendEmailCampaignStream(
+            HttpServletRequest request,
+            @RequestParam String title,
+            @RequestParam String body,
+            @RequestParam(required = false) List<String> cc,
+            @RequestParam(required = false) RecipientReader.Format format) throws IOException {
+
+        log.info("Received streamed email campaign ({})", request.getContentType());
+        RecipientReader.Format resolved = format != null ? format : RecipientReader.Format.detect(request.getContentType(), null);
+        return toResponse(campaignService.sendEmailCampaign(request.getInputStream(), resolved, title, body, cc));
+    }
+
+    /**
+     * Send a push campaign to device tokens from an uploaded file
+     * POST /api/v1/campaigns/push (multipart/form-data)
+     */
+    @PostMapping(value = "/push", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendPushCampaignUpload(
+            @RequestPart("recipients") MultipartFile recipients,
+            @RequestParam String title,
+            @RequestParam String description,
+            @RequestParam(required = false) String imageUrl,
+            @RequestParam(required = false) RecipientReader.Format format) throws IOException {
+
+        log.info("Received push campaign upload: {} ({} bytes)", recipients.getOriginalFilename(), recipients.getSize());
+        RecipientReader.Format resolved = format != null ? format
+                : RecipientReader.Format.detect(recipients.getContentType(), recipients.getOriginalFilename());
+        try (InputStream in = recipients.getInputStream()) {
+            return toResponse(campaignService.sendPushCampaign(in, resolved, title, description, imageUrl));
+        }
+    }
+
+    /**
+     * Send a push campaign to device tokens streamed in the request body
+     * POST /api/v1/campaigns/push (application/x-ndjson or text/csv)
+     */
+    @PostMapping(value = "/push", consumes = {NDJSON, CSV, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendPushCampaignStream(
+            HttpServletRequest request,
+            @RequestParam String title,
+            @RequestParam String description,
+            @RequestParam(required = false) String imageUrl,
+            @RequestParam(required = false) RecipientReader.Format format) throws IOException {
+
+        log.info("Received streamed push campaign ({})", request.getContentType());
+        RecipientReader.Format resolved = format != null ? format : RecipientReader.Format.detect(request.getContentType(), null);
+        return toResponse(campaignService.sendPushCampaign(request.getInputStream(), resolved, title, description, imageUrl));
+    }
+
+    private ResponseEntity<ApiResponse<NotificationResponse>> toResponse(NotificationResponse response) {
+        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status)
+                .body(ApiResponse.success(response.getMessage(), response));
+    }
+}
@@ -0,0 +1,56 @@
+package com.aigreentick.notification.controller;
+
+import com.aigreentick.notification.dto.ApiResponse;
+import com.aigreentick.notification.dto.DeviceRegistrationRequest;
+import com.aigreentick.notification.dto.DeviceRegistrationResponse;
+import com.aigreentick.notification.service.DeviceRegistryService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/devices")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class DeviceRegistrationController {
+
+    private final DeviceRegistryService deviceRegistryService;
+
+    /**
+     * Register a device token for a user
+     * POST /api/v1/devices
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<DeviceRegistrationResponse>> registerDevice(@Valid @RequestBody DeviceRegistrationRequest request) {
+        log.info("Registering device for user: {}", request.getUserId());
+        DeviceRegistrationResponse response = deviceRegistryService.register(request);
+        return ResponseEntity.ok(ApiResponse.success("Device registered successfully", response));
+    }
+
+    /**
+     * Unregister a device token
+     * DELETE /api/v1/devices/{token}
+     */
+    @DeleteMapping("/{token}")
+    public ResponseEntity<ApiResponse<Object>> unregisterDevice(@PathVariable String token) {
+        log.info("Unregistering device token");
+        deviceRegistryService.unregister(token);
+        return ResponseEntity.ok(ApiResponse.success("Device unregistered successfully"));
+    }
+
+    /**
+     * Get all devices registered for a user
+     * GET /api/v1/devices/user/{userId}
+     */
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<ApiResponse<List<DeviceRegistrationResponse>>> getDevicesForUser(@PathVariable String userId) {
+        log.info("Fetching devices for user: {}", userId);
+        List<DeviceRegistrationResponse> devices = deviceRegistryService.getDevicesForUser(userId);
+        return ResponseEntity.ok(ApiResponse.success("Devices retrieved successfully", devices));
+    }
+}
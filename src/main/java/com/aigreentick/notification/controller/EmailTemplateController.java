@@ -4,6 +4,7 @@ import com.aigreentick.notification.dto.ApiResponse;
 import com.aigreentick.notification.dto.EmailTemplateRequest;
 import com.aigreentick.notification.dto.EmailTemplateResponse;
 import com.aigreentick.notification.dto.EmailTemplateUpdateRequest;
+import com.aigreentick.notification.dto.TemplateStatistics;
 import com.aigreentick.notification.service.EmailTemplateService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -192,9 +193,9 @@ public class EmailTemplateController {
      * GET /api/v1/email-templates/statistics
      */
     @GetMapping("/statistics")
-    public ResponseEntity<ApiResponse<EmailTemplateService.TemplateStatistics>> getTemplateStatistics() {
+    public ResponseEntity<ApiResponse<TemplateStatistics>> getTemplateStatistics() {
         log.info("Fetching email template statistics");
-        EmailTemplateService.TemplateStatistics statistics = emailTemplateService.getTemplateStatistics();
+        TemplateStatistics statistics = emailTemplateService.getTemplateStatistics();
         return ResponseEntity.ok(ApiResponse.success("Template statistics retrieved successfully", statistics));
     }
 
@@ -1,18 +1,40 @@
 package com.aigreentick.notification.controller;
 
 import com.aigreentick.notification.dto.ApiResponse;
+import com.aigreentick.notification.dto.DeliveryLogPage;
+import com.aigreentick.notification.dto.DeliveryStatsResponse;
 import com.aigreentick.notification.dto.EmailNotificationRequest;
+import com.aigreentick.notification.dto.NotificationJobResponse;
 import com.aigreentick.notification.dto.NotificationResponse;
 import com.aigreentick.notification.dto.PushNotificationRequest;
+import com.aigreentick.notification.dto.TemplateEmailNotificationRequest;
+import com.aigreentick.notification.dto.UserPushNotificationRequest;
+import com.aigreentick.notification.entity.DeliveryRecord;
+import com.aigreentick.notification.entity.DeliveryStats;
+import com.aigreentick.notification.exception.IdempotencyKeyConflictException;
+import com.aigreentick.notification.service.DeliveryListener;
+import com.aigreentick.notification.service.DeliveryLogQueryService;
+import com.aigreentick.notification.service.DeliveryStatsService;
+import com.aigreentick.notification.service.DeliveryStreamService;
+import com.aigreentick.notification.service.DeviceRegistryService;
+import com.aigreentick.notification.service.IdempotencyService;
+import com.aigreentick.notification.service.NotificationJobService;
 import com.aigreentick.notification.service.NotificationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.concurrent.CompletableFuture;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/notifications")
@@ -21,21 +43,85 @@ import java.util.concurrent.CompletableFuture;
 @CrossOrigin(origins = "*")
 public class NotificationController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final NotificationService notificationService;
+    private final NotificationJobService notificationJobService;
+    private final DeviceRegistryService deviceRegistryService;
+    private final DeliveryStreamService deliveryStreamService;
+    private final IdempotencyService idempotencyService;
+    private final DeliveryLogQueryService deliveryLogQueryService;
+    private final DeliveryStatsService deliveryStatsService;
 
     /**
      * Send email notification
      * POST /api/v1/notifications/email
      */
     @PostMapping("/email")
-    public ResponseEntity<ApiResponse<NotificationResponse>> sendEmailNotification(@Valid @RequestBody EmailNotificationRequest request) {
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendEmailNotification(
+            @Valid @RequestBody EmailNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("Received email notification request for {} recipients", request.getTo().size());
         
-        NotificationResponse response = notificationService.sendEmailNotification(request);
+        return toResponse(idempotencyService.execute("email", idempotencyKey, request, NotificationResponse.class,
+                () -> notificationService.sendEmailNotification(request)));
+    }
+
+    /**
+     * Send email notification, streaming one JSON line per recipient and a final summary line
+     * POST /api/v1/notifications/email (Accept: application/x-ndjson)
+     */
+    @PostMapping(value = "/email", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamEmailNotificationNdjson(
+            @Valid @RequestBody EmailNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("Received streamed email notification request for {} recipients", request.getTo().size());
+        return streamNdjson("email-stream", idempotencyKey, request,
+                listener -> notificationService.sendEmailNotification(request, listener));
+    }
+
+    /**
+     * Send email notification, streaming per-recipient results as Server-Sent Events
+     * POST /api/v1/notifications/email (Accept: text/event-stream)
+     */
+    @PostMapping(value = "/email", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEmailNotificationEvents(
+            @Valid @RequestBody EmailNotificationRequest request,
+            @RequestParam(defaultValue = "300000") long timeoutMs,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("Received streamed email notification request for {} recipients", request.getTo().size());
+        return streamSse("email-stream", idempotencyKey, request,
+                listener -> notificationService.sendEmailNotification(request, listener), timeoutMs);
+    }
+
+    /**
+     * Send a stored email template, rendering its {{placeholders}} with shared and per-recipient variables
+     * POST /api/v1/notifications/email/template
+     */
+    @PostMapping("/email/template")
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendTemplateEmailNotification(
+            @Valid @RequestBody TemplateEmailNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("Received template email notification request for {} recipients", request.getTo().size());
         
-        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
-        return ResponseEntity.status(status)
-                .body(ApiResponse.success(response.getMessage(), response));
+        return toResponse(idempotencyService.execute("email-template", idempotencyKey, request, NotificationResponse.class,
+                () -> notificationService.sendTemplateEmailNotification(request)));
+    }
+
+    /**
+     * Send the same email to many recipients with one SMTP transaction per batch of recipients
+     * POST /api/v1/notifications/email/bulk
+     */
+    @PostMapping("/email/bulk")
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendBulkEmailNotification(
+            @Valid @RequestBody EmailNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("Received bulk email notification request for {} recipients", request.getTo().size());
+
+        return toResponse(idempotencyService.execute("email-bulk", idempotencyKey, request, NotificationResponse.class,
+                () -> notificationService.sendBulkEmailNotification(request)));
     }
 
     /**
@@ -43,14 +129,15 @@ public class NotificationController {
      * POST /api/v1/notifications/email/async
      */
     @PostMapping("/email/async")
-    public ResponseEntity<ApiResponse<String>> sendEmailNotificationAsync(@Valid @RequestBody EmailNotificationRequest request) {
+    public ResponseEntity<ApiResponse<NotificationJobResponse>> sendEmailNotificationAsync(
+            @Valid @RequestBody EmailNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("Received async email notification request for {} recipients", request.getTo().size());
         
-        CompletableFuture<NotificationResponse> future = notificationService.sendEmailNotificationAsync(request);
-        
-        // Return immediately with a processing message
-        return ResponseEntity.accepted()
-                .body(ApiResponse.success("Email notification is being processed asynchronously"));
+        // Return immediately with the job ID once the job is persisted
+        return toAcceptedResponse("Email notification is being processed asynchronously",
+                idempotencyService.execute("email-async", idempotencyKey, request, NotificationJobResponse.class,
+                        () -> new NotificationJobResponse(notificationJobService.enqueueEmail(request))));
     }
 
     /**
@@ -58,14 +145,40 @@ public class NotificationController {
      * POST /api/v1/notifications/push
      */
     @PostMapping("/push")
-    public ResponseEntity<ApiResponse<NotificationResponse>> sendPushNotification(@Valid @RequestBody PushNotificationRequest request) {
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendPushNotification(
+            @Valid @RequestBody PushNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("Received push notification request for {} devices", request.getDeviceIds().size());
         
-        NotificationResponse response = notificationService.sendPushNotification(request);
-        
-        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
-        return ResponseEntity.status(status)
-                .body(ApiResponse.success(response.getMessage(), response));
+        return toResponse(idempotencyService.execute("push", idempotencyKey, request, NotificationResponse.class,
+                () -> notificationService.sendPushNotification(request)));
+    }
+
+    /**
+     * Send push notification, streaming one JSON line per device and a final summary line
+     * POST /api/v1/notifications/push (Accept: application/x-ndjson)
+     */
+    @PostMapping(value = "/push", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamPushNotificationNdjson(
+            @Valid @RequestBody PushNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("Received streamed push notification request for {} devices", request.getDeviceIds().size());
+        return streamNdjson("push-stream", idempotencyKey, request,
+                listener -> notificationService.sendPushNotification(request, listener));
+    }
+
+    /**
+     * Send push notification, streaming per-device results as Server-Sent Events
+     * POST /api/v1/notifications/push (Accept: text/event-stream)
+     */
+    @PostMapping(value = "/push", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamPushNotificationEvents(
+            @Valid @RequestBody PushNotificationRequest request,
+            @RequestParam(defaultValue = "300000") long timeoutMs,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("Received streamed push notification request for {} devices", request.getDeviceIds().size());
+        return streamSse("push-stream", idempotencyKey, request,
+                listener -> notificationService.sendPushNotification(request, listener), timeoutMs);
     }
 
     /**
@@ -73,14 +186,35 @@ public class NotificationController {
      * POST /api/v1/notifications/push/async
      */
     @PostMapping("/push/async")
-    public ResponseEntity<ApiResponse<String>> sendPushNotificationAsync(@Valid @RequestBody PushNotificationRequest request) {
+    public ResponseEntity<ApiResponse<NotificationJobResponse>> sendPushNotificationAsync(
+            @Valid @RequestBody PushNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("Received async push notification request for {} devices", request.getDeviceIds().size());
         
-        CompletableFuture<NotificationResponse> future = notificationService.sendPushNotificationAsync(request);
+        // Return immediately with the job ID once the job is persisted
+        return toAcceptedResponse("Push notification is being processed asynchronously",
+                idempotencyService.execute("push-async", idempotencyKey, request, NotificationJobResponse.class,
+                        () -> new NotificationJobResponse(notificationJobService.enqueuePush(request))));
+    }
+
+    /**
+     * Send push notification to every registered device of the given users
+     * POST /api/v1/notifications/push/users
+     */
+    @PostMapping("/push/users")
+    public ResponseEntity<ApiResponse<NotificationResponse>> sendPushNotificationToUsers(
+            @Valid @RequestBody UserPushNotificationRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("Received push notification request for {} users", request.getUserIds().size());
         
-        // Return immediately with a processing message
-        return ResponseEntity.accepted()
-                .body(ApiResponse.success("Push notification is being processed asynchronously"));
+        return toResponse(idempotencyService.execute("push-users", idempotencyKey, request, NotificationResponse.class, () -> {
+            List<String> deviceIds = deviceRegistryService.resolveTokens(request.getUserIds());
+            if (deviceIds.isEmpty()) {
+                return new NotificationResponse(true, "No registered devices found for the given users", 0, 0);
+            }
+            PushNotificationRequest pushRequest = new PushNotificationRequest(deviceIds, request.getTitle(), request.getDescription(), request.getImageUrl());
+            return notificationService.sendPushNotification(pushRequest);
+        }));
     }
 
     /**
@@ -92,15 +226,13 @@ public class NotificationController {
             @RequestParam String topic,
             @RequestParam String title,
             @RequestParam String description,
-            @RequestParam(required = false) String imageUrl) {
+            @RequestParam(required = false) String imageUrl,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         
         log.info("Received push notification request for topic: {}", topic);
         
-        NotificationResponse response = notificationService.sendPushNotificationToTopic(topic, title, description, imageUrl);
-        
-        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
-        return ResponseEntity.status(status)
-                .body(ApiResponse.success(response.getMessage(), response));
+        return toResponse(idempotencyService.execute("push-topic", idempotencyKey, Arrays.asList(topic, title, description, imageUrl),
+                NotificationResponse.class, () -> notificationService.sendPushNotificationToTopic(topic, title, description, imageUrl)));
     }
 
     /**
@@ -108,19 +240,20 @@ public class NotificationController {
      * POST /api/v1/notifications/push/topic/async
      */
     @PostMapping("/push/topic/async")
-    public ResponseEntity<ApiResponse<String>> sendPushNotificationToTopicAsync(
+    public ResponseEntity<ApiResponse<NotificationJobResponse>> sendPushNotificationToTopicAsync(
             @RequestParam String topic,
             @RequestParam String title,
             @RequestParam String description,
-            @RequestParam(required = false) String imageUrl) {
+            @RequestParam(required = false) String imageUrl,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         
         log.info("Received async push notification request for topic: {}", topic);
         
-        CompletableFuture<NotificationResponse> future = notificationService.sendPushNotificationToTopicAsync(topic, title, description, imageUrl);
-        
-        // Return immediately with a processing message
-        return ResponseEntity.accepted()
-                .body(ApiResponse.success("Push notification to topic is being processed asynchronously"));
+        // Return immediately with the job ID once the job is persisted
+        return toAcceptedResponse("Push notification to topic is being processed asynchronously",
+                idempotencyService.execute("push-topic-async", idempotencyKey, Arrays.asList(topic, title, description, imageUrl),
+                        NotificationJobResponse.class,
+                        () -> new NotificationJobResponse(notificationJobService.enqueuePushToTopic(topic, title, description, imageUrl))));
     }
 
     /**
@@ -130,15 +263,13 @@ public class NotificationController {
     @PostMapping("/both")
     public ResponseEntity<ApiResponse<NotificationResponse>> sendBothNotifications(
             @Valid @RequestBody EmailNotificationRequest emailRequest,
-            @Valid @RequestBody PushNotificationRequest pushRequest) {
+            @Valid @RequestBody PushNotificationRequest pushRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         
         log.info("Received request to send both email and push notifications");
         
-        NotificationResponse response = notificationService.sendBothNotifications(emailRequest, pushRequest);
-        
-        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
-        return ResponseEntity.status(status)
-                .body(ApiResponse.success(response.getMessage(), response));
+        return toResponse(idempotencyService.execute("both", idempotencyKey, List.of(emailRequest, pushRequest), NotificationResponse.class,
+                () -> notificationService.sendBothNotifications(emailRequest, pushRequest)));
     }
 
     /**
@@ -146,17 +277,74 @@ public class NotificationController {
      * POST /api/v1/notifications/both/async
      */
     @PostMapping("/both/async")
-    public ResponseEntity<ApiResponse<String>> sendBothNotificationsAsync(
+    public ResponseEntity<ApiResponse<NotificationJobResponse>> sendBothNotificationsAsync(
             @Valid @RequestBody EmailNotificationRequest emailRequest,
-            @Valid @RequestBody PushNotificationRequest pushRequest) {
+            @Valid @RequestBody PushNotificationRequest pushRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         
         log.info("Received async request to send both email and push notifications");
         
-        CompletableFuture<NotificationResponse> future = notificationService.sendBothNotificationsAsync(emailRequest, pushRequest);
-        
-        // Return immediately with a processing message
-        return ResponseEntity.accepted()
-                .body(ApiResponse.success("Both notifications are being processed asynchronously"));
+        // Return immediately with the job ID once the job is persisted
+        return toAcceptedResponse("Both notifications are being processed asynchronously",
+                idempotencyService.execute("both-async", idempotencyKey, List.of(emailRequest, pushRequest), NotificationJobResponse.class,
+                        () -> new NotificationJobResponse(notificationJobService.enqueueBoth(emailRequest, pushRequest))));
+    }
+
+    /**
+     * Get status and progress of an asynchronous notification job
+     * GET /api/v1/notifications/jobs/{id}
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ApiResponse<NotificationJobResponse>> getJob(@PathVariable String id) {
+        log.info("Fetching notification job with ID: {}", id);
+        NotificationJobResponse job = notificationJobService.getJob(id);
+        return ResponseEntity.ok(ApiResponse.success("Notification job retrieved successfully", job));
+    }
+
+    /**
+     * Stream progress of an asynchronous notification job as Server-Sent Events
+     * GET /api/v1/notifications/jobs/{id}/events?timeoutMs={timeoutMs}
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJob(@PathVariable String id, @RequestParam(defaultValue = "300000") long timeoutMs) {
+        log.info("Streaming progress for notification job with ID: {}", id);
+        return notificationJobService.streamJob(id, timeoutMs);
+    }
+
+    /**
+     * Get delivery log entries, newest first, one page at a time
+     * GET /api/v1/notifications/logs?channel={channel}&recipient={recipient}&success={success}&from={from}&to={to}&cursor={cursor}&limit={limit}
+     */
+    @GetMapping("/logs")
+    public ResponseEntity<ApiResponse<DeliveryLogPage>> getLogs(
+            @RequestParam(required = false) DeliveryRecord.Channel channel,
+            @RequestParam(required = false) String recipient,
+            @RequestParam(required = false) Boolean success,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        log.info("Fetching delivery logs - channel: {}, recipient: {}, success: {}, from: {}, to: {}, limit: {}",
+                channel, recipient, success, from, to, limit);
+
+        DeliveryLogPage page = deliveryLogQueryService.findLogs(channel, recipient, success, from, to, cursor, limit);
+        return ResponseEntity.ok(ApiResponse.success("Delivery logs retrieved successfully", page));
+    }
+
+    /**
+     * Get delivery counts per minute, hour or day from the pre-aggregated rollups
+     * GET /api/v1/notifications/stats?granularity={granularity}&channel={channel}&from={from}&to={to}
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<DeliveryStatsResponse>> getStats(
+            @RequestParam(defaultValue = "HOUR") DeliveryStats.Granularity granularity,
+            @RequestParam(required = false) DeliveryRecord.Channel channel,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("Fetching delivery statistics - granularity: {}, channel: {}, from: {}, to: {}", granularity, channel, from, to);
+
+        DeliveryStatsResponse stats = deliveryStatsService.getStats(granularity, channel, from, to);
+        return ResponseEntity.ok(ApiResponse.success("Delivery statistics retrieved successfully", stats));
     }
 
     /**
@@ -187,6 +375,61 @@ public class NotificationController {
         return ResponseEntity.ok(ApiResponse.success(message, isValid));
     }
 
+    /**
+     * Map a send result to 200 or 500, marking responses replayed for a repeated Idempotency-Key
+     */
+    private ResponseEntity<ApiResponse<NotificationResponse>> toResponse(IdempotencyService.Result<NotificationResponse> result) {
+        NotificationResponse response = result.getValue();
+        HttpStatus status = response.isSuccess() ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status)
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(result.isReplayed()))
+                .body(ApiResponse.success(response.getMessage(), response));
+    }
+
+    private ResponseEntity<ApiResponse<NotificationJobResponse>> toAcceptedResponse(String message,
+                                                                                    IdempotencyService.Result<NotificationJobResponse> result) {
+        return ResponseEntity.accepted()
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(result.isReplayed()))
+                .body(ApiResponse.success(message, result.getValue()));
+    }
+
+    /**
+     * Stream a send under its Idempotency-Key. A rejected key is answered with 409 and a single line holding the
+     * error, since the error handler cannot write JSON to a client that only accepts NDJSON.
+     */
+    private ResponseEntity<StreamingResponseBody> streamNdjson(String scope, String idempotencyKey, Object request,
+                                                               Function<DeliveryListener, NotificationResponse> send) {
+        MediaType ndjson = MediaType.parseMediaType(NDJSON);
+        IdempotencyService.StreamClaim claim;
+        try {
+            claim = idempotencyService.claimStream(scope, idempotencyKey, request);
+        } catch (IdempotencyKeyConflictException e) {
+            log.error("Idempotency key conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).contentType(ndjson)
+                    .body(deliveryStreamService.ndjsonLine(ApiResponse.error(e.getMessage())));
+        }
+        return ResponseEntity.ok()
+                .contentType(ndjson)
+                .body(deliveryStreamService.streamNdjson(listener -> claim.run(() -> send.apply(listener))));
+    }
+
+    /**
+     * Stream a send as Server-Sent Events under its Idempotency-Key; a rejected key is answered with 409 and
+     * a single "error" event
+     */
+    private ResponseEntity<SseEmitter> streamSse(String scope, String idempotencyKey, Object request,
+                                                 Function<DeliveryListener, NotificationResponse> send, long timeoutMs) {
+        IdempotencyService.StreamClaim claim;
+        try {
+            claim = idempotencyService.claimStream(scope, idempotencyKey, request);
+        } catch (IdempotencyKeyConflictException e) {
+            log.error("Idempotency key conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(deliveryStreamService.sseError(ApiResponse.error(e.getMessage())));
+        }
+        return ResponseEntity.ok(deliveryStreamService.streamSse(listener -> claim.run(() -> send.apply(listener)), timeoutMs));
+    }
+
     /**
      * Health check for notification service
      * GET /api/v1/notifications/health
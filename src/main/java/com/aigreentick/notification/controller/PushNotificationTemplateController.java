@@ -4,6 +4,7 @@ import com.aigreentick.notification.dto.ApiResponse;
 import com.aigreentick.notification.dto.PushNotificationTemplateRequest;
 import com.aigreentick.notification.dto.PushNotificationTemplateResponse;
 import com.aigreentick.notification.dto.PushNotificationTemplateUpdateRequest;
+import com.aigreentick.notification.dto.TemplateStatistics;
 import com.aigreentick.notification.service.PushNotificationTemplateService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -214,9 +215,9 @@ public class PushNotificationTemplateController {
      * GET /api/v1/push-notification-templates/statistics
      */
     @GetMapping("/statistics")
-    public ResponseEntity<ApiResponse<PushNotificationTemplateService.TemplateStatistics>> getTemplateStatistics() {
+    public ResponseEntity<ApiResponse<TemplateStatistics>> getTemplateStatistics() {
         log.info("Fetching push notification template statistics");
-        PushNotificationTemplateService.TemplateStatistics statistics = pushNotificationTemplateService.getTemplateStatistics();
+        TemplateStatistics statistics = pushNotificationTemplateService.getTemplateStatistics();
         return ResponseEntity.ok(ApiResponse.success("Template statistics retrieved successfully", statistics));
     }
 
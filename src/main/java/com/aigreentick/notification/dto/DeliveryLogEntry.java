@@ -0,0 +1,49 @@
+package com.aigreentick.notification.dto;
+
+import com.aigreentick.notification.entity.DeliveryRecord;
+import com.aigreentick.notification.entity.NotificationContent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeliveryLogEntry {
+
+    private String id;
+    private DeliveryRecord.Channel channel;
+    private String recipient;
+    private boolean success;
+    private String errorCode;
+    private String errorMessage;
+    private LocalDateTime sentAt;
+    private String title;
+    private String body;
+    private List<String> cc;
+    private String description;
+    private String imageUrl;
+
+    // Constructor to convert from Entity; content is null if it has not been written yet
+    public DeliveryLogEntry(DeliveryRecord record, boolean success, String errorCode, NotificationContent content) {
+        this.id = record.getId().toHexString();
+        this.channel = record.getChannel();
+        this.recipient = record.getRecipient();
+        this.success = success;
+        this.errorCode = errorCode;
+        this.errorMessage = record.getError();
+        this.sentAt = record.getSentAt();
+        if (content != null) {
+            this.title = content.getTitle();
+            this.body = content.getBody();
+            this.cc = content.getCc();
+            this.description = content.getDescription();
+            this.imageUrl = content.getImageUrl();
+        }
+    }
+}
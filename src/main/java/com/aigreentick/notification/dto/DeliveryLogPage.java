@@ -0,0 +1,20 @@
+package com.aigreentick.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryLogPage {
+
+    private List<DeliveryLogEntry> items;
+
+    /**
+     * Opaque token for the next page, null on the last page
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,36 @@
+package com.aigreentick.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryResult {
+
+    private String recipient;
+    private boolean success;
+    private String messageId;
+    private String errorCode;
+    private String errorMessage;
+
+    @JsonIgnore
+    private boolean retryable;
+
+    @JsonIgnore
+    private long retryAfterMillis;
+
+    public static DeliveryResult success(String recipient, String messageId) {
+        return new DeliveryResult(recipient, true, messageId, null, null, false, 0);
+    }
+
+    public static DeliveryResult failure(String recipient, String errorCode, String errorMessage) {
+        return new DeliveryResult(recipient, false, null, errorCode, errorMessage, false, 0);
+    }
+
+    public static DeliveryResult retryableFailure(String recipient, String errorCode, String errorMessage, long retryAfterMillis) {
+        return new DeliveryResult(recipient, false, null, errorCode, errorMessage, true, retryAfterMillis);
+    }
+}
@@ -0,0 +1,33 @@
+package com.aigreentick.notification.dto;
+
+import com.aigreentick.notification.entity.DeliveryRecord;
+import com.aigreentick.notification.entity.DeliveryStats;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryStatsBucket {
+
+    private DeliveryRecord.Channel channel;
+    private LocalDateTime bucketStart;
+    private long delivered;
+    private long failed;
+    private Map<String, Long> errors;
+    private Map<String, DeliveryStats.Counts> templates;
+
+    // Constructor to convert from Entity
+    public DeliveryStatsBucket(DeliveryStats stats) {
+        this.channel = stats.getChannel();
+        this.bucketStart = stats.getBucketStart();
+        this.delivered = stats.getDelivered();
+        this.failed = stats.getFailed();
+        this.errors = stats.getErrors() != null ? stats.getErrors() : Map.of();
+        this.templates = stats.getTemplates() != null ? stats.getTemplates() : Map.of();
+    }
+}
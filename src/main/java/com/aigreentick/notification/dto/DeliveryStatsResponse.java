@@ -0,0 +1,32 @@
+package com.aigreentick.notification.dto;
+
+import com.aigreentick.notification.entity.DeliveryStats;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryStatsResponse {
+
+    private DeliveryStats.Granularity granularity;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    /**
+     * Totals over all returned buckets
+     */
+    private long delivered;
+    private long failed;
+    private Map<String, Long> errors;
+
+    /**
+     * Oldest first; buckets without deliveries are left out
+     */
+    private List<DeliveryStatsBucket> buckets;
+}
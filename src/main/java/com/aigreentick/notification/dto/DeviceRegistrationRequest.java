@@ -0,0 +1,23 @@
+package com.aigreentick.notification.dto;
+
+import com.aigreentick.notification.entity.DeviceRegistration;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceRegistrationRequest {
+
+    @NotBlank(message = "User ID is required")
+    private String userId;
+
+    @NotBlank(message = "Device token is required")
+    private String token;
+
+    @NotNull(message = "Platform is required")
+    private DeviceRegistration.Platform platform;
+}
@@ -0,0 +1,31 @@
+package com.aigreentick.notification.dto;
+
+import com.aigreentick.notification.entity.DeviceRegistration;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceRegistrationResponse {
+
+    private String id;
+    private String userId;
+    private String token;
+    private DeviceRegistration.Platform platform;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Constructor to convert from Entity
+    public DeviceRegistrationResponse(DeviceRegistration registration) {
+        this.id = registration.getId();
+        this.userId = registration.getUserId();
+        this.token = registration.getToken();
+        this.platform = registration.getPlatform();
+        this.createdAt = registration.getCreatedAt();
+        this.updatedAt = registration.getUpdatedAt();
+    }
+}
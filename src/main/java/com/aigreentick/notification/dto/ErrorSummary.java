@@ -0,0 +1,59 @@
+package com.aigreentick.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Failure counts per error code plus the first few messages, so a response stays small however many recipients fail
+ */
+@Data
+@NoArgsConstructor
+public class ErrorSummary {
+
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private Map<String, Integer> countsByCode = new LinkedHashMap<>();
+    private List<String> samples = new ArrayList<>();
+
+    @JsonIgnore
+    private int maxSamples;
+
+    public ErrorSummary(int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Count one failure under its code and keep the message if there is room for another sample
+     */
+    public void add(String errorCode, String message) {
+        countsByCode.merge(errorCode != null ? errorCode : UNKNOWN, 1, Integer::sum);
+        addSample(message);
+    }
+
+    public void addSample(String message) {
+        if (message != null && samples.size() < maxSamples) {
+            samples.add(message);
+        }
+    }
+
+    /**
+     * Fold another summary into this one, keeping this summary's sample cap
+     */
+    public void merge(ErrorSummary other) {
+        other.countsByCode.forEach((code, count) -> countsByCode.merge(code, count, Integer::sum));
+        for (String sample : other.samples) {
+            addSample(sample);
+        }
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return countsByCode.isEmpty() && samples.isEmpty();
+    }
+}
@@ -0,0 +1,45 @@
+package com.aigreentick.notification.dto;
+
+import com.aigreentick.notification.entity.NotificationJob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationJobResponse {
+
+    private String id;
+    private NotificationJob.Type type;
+    private NotificationJob.Status status;
+    private int totalCount;
+    private int successCount;
+    private int failureCount;
+    private int pendingCount;
+    private int attempts;
+    private String resultMessage;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+
+    // Constructor to convert from Entity
+    public NotificationJobResponse(NotificationJob job) {
+        this.id = job.getId();
+        this.type = job.getType();
+        this.status = job.getStatus();
+        this.totalCount = job.getTotalCount();
+        this.successCount = job.getSuccessCount();
+        this.failureCount = job.getFailureCount();
+        this.pendingCount = Math.max(0, job.getTotalCount() - job.getSuccessCount() - job.getFailureCount());
+        this.attempts = job.getAttempts();
+        this.resultMessage = job.getResultMessage();
+        this.lastError = job.getLastError();
+        this.createdAt = job.getCreatedAt();
+        this.updatedAt = job.getUpdatedAt();
+        this.completedAt = job.getCompletedAt();
+    }
+}
@@ -13,6 +13,8 @@ public class NotificationResponse {
     private String message;
     private int successCount;
     private int failureCount;
+    private int retryingCount;
+    private int skippedCount;
     private Object data;
 
     public NotificationResponse(boolean success, String message) {
@@ -28,4 +30,12 @@ public class NotificationResponse {
         this.successCount = successCount;
         this.failureCount = failureCount;
     }
+
+    public NotificationResponse(boolean success, String message, int successCount, int failureCount, Object data) {
+        this.success = success;
+        this.message = message;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.data = data;
+    }
 }
@@ -0,0 +1,61 @@
+package com.aigreentick.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TemplateEmailNotificationRequest {
+
+    private String templateId;
+
+    private String templateName;
+
+    @NotEmpty(message = "To recipients are required")
+    private List<@Email(message = "Invalid email format for 'to' field") String> to;
+
+    private List<@Email(message = "Invalid email format for 'cc' field") String> cc;
+
+    // Values for {{placeholders}} shared by every recipient
+    private Map<String, String> variables;
+
+    // Per-recipient values keyed by email address; these override the shared variables
+    private Map<String, Map<String, String>> recipientVariables;
+
+    @JsonIgnore
+    @AssertTrue(message = "Either templateId or templateName is required")
+    public boolean isTemplateSpecified() {
+        return (templateId != null && !templateId.isBlank()) || (templateName != null && !templateName.isBlank());
+    }
+
+    /**
+     * Whether the recipient has values of their own; everyone else renders the shared variables alone
+     */
+    public boolean hasOwnVariables(String recipient) {
+        Map<String, String> own = recipientVariables != null ? recipientVariables.get(recipient) : null;
+        return own != null && !own.isEmpty();
+    }
+
+    /**
+     * Shared variables merged with the recipient's own values
+     */
+    public Map<String, String> variablesFor(String recipient) {
+        Map<String, String> own = recipientVariables != null ? recipientVariables.get(recipient) : null;
+        if (own == null || own.isEmpty()) {
+            return variables != null ? variables : Map.of();
+        }
+        Map<String, String> merged = variables != null ? new HashMap<>(variables) : new HashMap<>();
+        merged.putAll(own);
+        return merged;
+    }
+}
@@ -0,0 +1,30 @@
+package com.aigreentick.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TemplateStatistics {
+
+    private long totalTemplates;
+    private long activeTemplates;
+    private long inactiveTemplates;
+
+    /**
+     * Template count per creator; templates without a creator are counted under "unknown"
+     */
+    private Map<String, Long> templatesByCreatedBy;
+
+    /**
+     * Only set for template types that have an image
+     */
+    private Long templatesWithImage;
+    private Long templatesWithoutImage;
+}
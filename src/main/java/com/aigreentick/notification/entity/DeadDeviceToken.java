@@ -0,0 +1,23 @@
+package com.aigreentick.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "dead_device_tokens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadDeviceToken {
+
+    @Id
+    private String token;
+
+    private String errorCode;
+
+    private LocalDateTime markedAt;
+}
@@ -0,0 +1,68 @@
+package com.aigreentick.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of one delivery in the delivery log shared by all channels.
+ * Field names are abbreviated to keep documents small, and the ObjectId _id orders and shards records by time.
+ */
+@Document(collection = "delivery_records")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryRecord {
+
+    public enum Channel {
+        EMAIL, PUSH
+    }
+
+    @Id
+    private ObjectId id;
+
+    @Field("ch")
+    private Channel channel;
+
+    /**
+     * Email address or device token
+     */
+    @Field("r")
+    private String recipient;
+
+    /**
+     * Id of the shared {@link NotificationContent}
+     */
+    @Field("c")
+    private String contentId;
+
+    /**
+     * 0 when delivered, otherwise an error code from DeliveryStatus
+     */
+    @Field("s")
+    private int status;
+
+    /**
+     * Whether status is DELIVERED, so the log can be filtered on success by equality
+     */
+    @Field("ok")
+    private boolean delivered;
+
+    /**
+     * Error text, only kept for errors without a known code
+     */
+    @Field("e")
+    private String error;
+
+    /**
+     * Send time as a date, which TTL expiry and time-series storage need; the _id only has second precision
+     */
+    @Field("t")
+    private LocalDateTime sentAt;
+}
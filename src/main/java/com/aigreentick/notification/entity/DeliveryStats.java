@@ -0,0 +1,64 @@
+package com.aigreentick.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Delivery counts of one channel over one minute, hour or day.
+ * Buckets are only ever incremented, so every instance adds its own counts to the same document.
+ */
+@Document(collection = "delivery_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryStats {
+
+    public enum Granularity {
+        MINUTE, HOUR, DAY
+    }
+
+    /**
+     * Granularity, channel and bucket start, e.g. HOUR:PUSH:2026-10-17T09:00
+     */
+    @Id
+    private String id;
+
+    private Granularity granularity;
+
+    private DeliveryRecord.Channel channel;
+
+    private LocalDateTime bucketStart;
+
+    private long delivered;
+
+    private long failed;
+
+    /**
+     * Failures per error code
+     */
+    private Map<String, Long> errors;
+
+    /**
+     * Counts per template name; sends without a template are counted under "none"
+     */
+    private Map<String, Counts> templates;
+
+    /**
+     * Set on insert from the retention of the granularity; null keeps the bucket forever
+     */
+    private LocalDateTime expiresAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Counts {
+        private long delivered;
+        private long failed;
+    }
+}
@@ -0,0 +1,54 @@
+package com.aigreentick.notification.entity;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "device_registrations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceRegistration {
+
+    public enum Platform {
+        ANDROID,
+        IOS,
+        WEB
+    }
+
+    @Id
+    private String id;
+
+    @NotBlank(message = "User ID is required")
+    @Indexed
+    private String userId;
+
+    @NotBlank(message = "Device token is required")
+    @Indexed(unique = true)
+    private String token;
+
+    @NotNull(message = "Platform is required")
+    private Platform platform;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+
+    // Constructor for registering a new device
+    public DeviceRegistration(String userId, String token, Platform platform) {
+        this.userId = userId;
+        this.token = token;
+        this.platform = platform;
+    }
+}
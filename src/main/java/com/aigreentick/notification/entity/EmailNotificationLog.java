@@ -21,6 +21,12 @@ public class EmailNotificationLog {
 
     private String to;
 
+    /**
+     * Id of the shared {@link NotificationContent}. The content fields below are only stored on entries
+     * written before content was deduplicated, and are filled in from the content when logs are read.
+     */
+    private String contentId;
+
     private List<String> cc;
 
     private String title;
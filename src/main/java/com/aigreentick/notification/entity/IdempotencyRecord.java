@@ -0,0 +1,54 @@
+package com.aigreentick.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Outcome of a send made under an Idempotency-Key; expired records are removed by a TTL index on expiresAt
+ */
+@Document(collection = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+
+    /**
+     * Endpoint scope and client key, e.g. "email:3f1c..."
+     */
+    @Id
+    private String id;
+
+    /**
+     * Hash of the request body, used to reject a key reused for a different request
+     */
+    private String fingerprint;
+
+    private Status status;
+
+    private Object response;
+
+    /**
+     * Claim of the request that is running the send; cleared on completion
+     */
+    private String owner;
+
+    /**
+     * Until when the owner holds an IN_PROGRESS record. The owner renews it while the send runs, so a record
+     * whose lease lapsed belongs to a node that crashed and may be taken over by a retry.
+     */
+    private Date lockedUntil;
+
+    private Date createdAt;
+
+    private Date expiresAt;
+}
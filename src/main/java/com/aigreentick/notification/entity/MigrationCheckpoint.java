@@ -0,0 +1,31 @@
+package com.aigreentick.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a data migration, so an interrupted migration resumes after the last copied document
+ */
+@Document(collection = "migration_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationCheckpoint {
+
+    @Id
+    private String id;
+
+    /**
+     * _id of the last source document that was copied
+     */
+    private String lastId;
+
+    private boolean completed;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,44 @@
+package com.aigreentick.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Message content shared by every delivery log entry of a send, stored once under its hash.
+ * Email content uses title, body and cc; push content uses title, description and imageUrl.
+ */
+@Document(collection = "notification_contents")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationContent {
+
+    /**
+     * SHA-256 of the channel and content fields, hex encoded
+     */
+    @Id
+    private String id;
+
+    private String title;
+
+    private String body;
+
+    private List<String> cc;
+
+    private String description;
+
+    private String imageUrl;
+
+    private LocalDateTime createdAt;
+
+    /**
+     * When a send last used this content; the content expires a retention and a half after it
+     */
+    private LocalDateTime lastUsedAt;
+}
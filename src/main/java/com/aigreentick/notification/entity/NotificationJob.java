@@ -0,0 +1,104 @@
+package com.aigreentick.notification.entity;
+
+import com.aigreentick.notification.dto.EmailNotificationRequest;
+import com.aigreentick.notification.dto.PushNotificationRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "notification_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationJob {
+
+    public enum Type {
+        EMAIL,
+        PUSH,
+        PUSH_TOPIC,
+        BOTH
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    private String id;
+
+    private Type type;
+
+    private Status status;
+
+    private EmailNotificationRequest emailRequest;
+
+    private PushNotificationRequest pushRequest;
+
+    private String topic;
+
+    private int attempts;
+
+    private String leaseOwner;
+
+    private LocalDateTime leaseExpiresAt;
+
+    /**
+     * A re-queued job is not claimed before this time
+     */
+    private LocalDateTime availableAt;
+
+    private int totalCount;
+
+    private int successCount;
+
+    private int failureCount;
+
+    private String resultMessage;
+
+    private String lastError;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+
+    // Constructor for enqueuing a new job
+    public NotificationJob(Type type, EmailNotificationRequest emailRequest, PushNotificationRequest pushRequest, String topic) {
+        this.type = type;
+        this.emailRequest = emailRequest;
+        this.pushRequest = pushRequest;
+        this.topic = topic;
+        this.status = Status.QUEUED;
+        this.totalCount = countRecipients();
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    private int countRecipients() {
+        if (type == Type.PUSH_TOPIC) {
+            return 1;
+        }
+        int count = 0;
+        if (emailRequest != null && emailRequest.getTo() != null) {
+            count += emailRequest.getTo().size();
+        }
+        if (pushRequest != null && pushRequest.getDeviceIds() != null) {
+            count += pushRequest.getDeviceIds().size();
+        }
+        return count;
+    }
+}
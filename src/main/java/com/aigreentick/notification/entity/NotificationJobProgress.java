@@ -0,0 +1,47 @@
+package com.aigreentick.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Recipients of one slice of a job's recipient list whose outcome is already counted; a re-claimed job skips them.
+ * Recipients are stored as their position in the request's list, so a job's progress is spread over
+ * one small document per slice instead of growing the job document.
+ */
+@Document(collection = "notification_job_progress")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationJobProgress {
+
+    public static final String EMAIL = "email";
+    public static final String PUSH = "push";
+
+    /**
+     * jobId:channel:slice
+     */
+    @Id
+    private String id;
+
+    private String jobId;
+
+    private String channel;
+
+    private int slice;
+
+    /**
+     * Positions in the request's recipient list
+     */
+    private List<Integer> succeeded;
+
+    private List<Integer> failed;
+
+    public static String idOf(String jobId, String channel, int slice) {
+        return jobId + ":" + channel + ":" + slice;
+    }
+}
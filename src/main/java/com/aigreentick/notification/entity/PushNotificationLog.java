@@ -20,6 +20,12 @@ public class PushNotificationLog {
 
     private String deviceId;
 
+    /**
+     * Id of the shared {@link NotificationContent}. The content fields below are only stored on entries
+     * written before content was deduplicated, and are filled in from the content when logs are read.
+     */
+    private String contentId;
+
     private String title;
 
     private String description;
@@ -0,0 +1,12 @@
+package com.aigreentick.notification.exception;
+
+public class DeviceRegistrationNotFoundException extends RuntimeException {
+    
+    public DeviceRegistrationNotFoundException(String message) {
+        super(message);
+    }
+    
+    public DeviceRegistrationNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
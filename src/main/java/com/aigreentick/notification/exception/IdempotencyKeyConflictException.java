@@ -0,0 +1,12 @@
+package com.aigreentick.notification.exception;
+
+public class IdempotencyKeyConflictException extends RuntimeException {
+    
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+    
+    public IdempotencyKeyConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.aigreentick.notification.exception;
+
+public class NotificationJobNotFoundException extends RuntimeException {
+    
+    public NotificationJobNotFoundException(String message) {
+        super(message);
+    }
+    
+    public NotificationJobNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.aigreentick.notification.exception;
+
+public class RateLimitExceededException extends RuntimeException {
+    
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+    
+    public RateLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,30 @@
+package com.aigreentick.notification.repository;
+
+import com.aigreentick.notification.entity.DeviceRegistration;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DeviceRegistrationRepository extends MongoRepository<DeviceRegistration, String> {
+
+    /**
+     * Find registration by device token
+     */
+    Optional<DeviceRegistration> findByToken(String token);
+
+    /**
+     * Find all devices registered for a user
+     */
+    List<DeviceRegistration> findByUserId(String userId);
+
+    /**
+     * Fetch only the tokens of all devices belonging to any of the users, in one query
+     */
+    @Query(value = "{ 'userId': { $in: ?0 } }", fields = "{ 'token': 1 }")
+    List<DeviceRegistration> findTokensByUserIdIn(Collection<String> userIds);
+}
@@ -0,0 +1,9 @@
+package com.aigreentick.notification.repository;
+
+import com.aigreentick.notification.entity.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String> {
+}
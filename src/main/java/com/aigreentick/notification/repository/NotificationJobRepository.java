@@ -0,0 +1,9 @@
+package com.aigreentick.notification.repository;
+
+import com.aigreentick.notification.entity.NotificationJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationJobRepository extends MongoRepository<NotificationJob, String> {
+}
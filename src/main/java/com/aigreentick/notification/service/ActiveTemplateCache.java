@@ -0,0 +1,216 @@
+package com.aigreentick.notification.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process snapshot of active templates keyed by lower-cased name.
+ *
+ * <p>Reads go to an immutable map that is replaced atomically, so hits never lock or touch the database.
+ * Writes through the template services update the snapshot immediately; a periodic full reload picks up
+ * changes made by other instances. An entry is only ever replaced by one with the same or a higher @Version.
+ * Concurrent misses for the same key share a single database load.
+ */
+@Slf4j
+public class ActiveTemplateCache<T> implements AutoCloseable {
+
+    private final String kind;
+    private final Function<T, String> idOf;
+    private final Function<T, String> keyOf;
+    private final Function<T, Long> versionOf;
+    private final Predicate<T> isActive;
+    private final Supplier<List<T>> loadAllActive;
+    private final Function<String, Optional<T>> loadByKey;
+    private final long refreshIntervalMs;
+
+    private final AtomicReference<Map<String, T>> snapshot = new AtomicReference<>(Map.of());
+    private final ConcurrentMap<String, CompletableFuture<Optional<T>>> inFlight = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refresher;
+
+    public ActiveTemplateCache(String kind,
+                               Function<T, String> idOf,
+                               Function<T, String> keyOf,
+                               Function<T, Long> versionOf,
+                               Predicate<T> isActive,
+                               Supplier<List<T>> loadAllActive,
+                               Function<String, Optional<T>> loadByKey,
+                               long refreshIntervalMs) {
+        this.kind = kind;
+        this.idOf = idOf;
+        this.keyOf = keyOf;
+        this.versionOf = versionOf;
+        this.isActive = isActive;
+        this.loadAllActive = loadAllActive;
+        this.loadByKey = loadByKey;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        if (refreshIntervalMs > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, kind + "-template-cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(() -> {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    log.warn("Failed to refresh {} template cache: {}", kind, e.getMessage());
+                }
+            }, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Look up a template by name, case-insensitively.
+     * Active templates are served from the snapshot; anything else is loaded from the database.
+     */
+    public Optional<T> get(String key) {
+        String normalized = normalize(key);
+        T cached = snapshot.get().get(normalized);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return load(normalized, key);
+    }
+
+    /**
+     * Apply a saved template: active versions are cached, inactive ones dropped
+     */
+    public void update(T template) {
+        Map<String, T> current;
+        Map<String, T> next;
+        do {
+            current = snapshot.get();
+            T existing = findById(current, idOf.apply(template));
+            if (existing != null && isNewer(existing, template)) {
+                return;
+            }
+            next = new HashMap<>(current);
+            if (existing != null) {
+                next.remove(normalize(keyOf.apply(existing)));
+            }
+            if (isActive.test(template)) {
+                next.put(normalize(keyOf.apply(template)), template);
+            }
+        } while (!snapshot.compareAndSet(current, Map.copyOf(next)));
+    }
+
+    /**
+     * Drop a deleted template
+     */
+    public void remove(String id) {
+        Map<String, T> current;
+        Map<String, T> next;
+        do {
+            current = snapshot.get();
+            T existing = findById(current, id);
+            if (existing == null) {
+                return;
+            }
+            next = new HashMap<>(current);
+            next.remove(normalize(keyOf.apply(existing)));
+        } while (!snapshot.compareAndSet(current, Map.copyOf(next)));
+    }
+
+    /**
+     * Reload every active template and swap in the new snapshot.
+     * An entry updated locally to a newer version while the reload ran is kept.
+     */
+    public void refresh() {
+        Map<String, T> loaded = new HashMap<>();
+        for (T template : loadAllActive.get()) {
+            loaded.put(normalize(keyOf.apply(template)), template);
+        }
+        Map<String, T> current;
+        Map<String, T> next;
+        do {
+            current = snapshot.get();
+            next = new HashMap<>(loaded);
+            for (Map.Entry<String, T> entry : current.entrySet()) {
+                T reloaded = next.get(entry.getKey());
+                if (reloaded != null && isNewer(entry.getValue(), reloaded)) {
+                    next.put(entry.getKey(), entry.getValue());
+                }
+            }
+        } while (!snapshot.compareAndSet(current, Map.copyOf(next)));
+        log.debug("Loaded {} active {} templates", next.size(), kind);
+    }
+
+    private Optional<T> load(String normalized, String key) {
+        CompletableFuture<Optional<T>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<T>> existing = inFlight.putIfAbsent(normalized, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        try {
+            Optional<T> loaded = loadByKey.apply(key);
+            loaded.filter(isActive).ifPresent(this::update);
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(normalized, mine);
+        }
+    }
+
+    private T findById(Map<String, T> map, String id) {
+        for (T template : map.values()) {
+            if (Objects.equals(idOf.apply(template), id)) {
+                return template;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the cached entry has a strictly higher version than the candidate
+     */
+    private boolean isNewer(T cached, T candidate) {
+        Long cachedVersion = versionOf.apply(cached);
+        Long candidateVersion = versionOf.apply(candidate);
+        return cachedVersion != null && candidateVersion != null && cachedVersion > candidateVersion;
+    }
+
+    private static String normalize(String key) {
+        return key == null ? "" : key.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.EmailNotificationRequest;
+import com.aigreentick.notification.dto.ErrorSummary;
+import com.aigreentick.notification.dto.NotificationResponse;
+import com.aigreentick.notification.dto.PushNotificationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sends one notification to a recipient list streamed from an upload.
+ * Recipients are read and sent in fixed-size batches, so memory use does not grow with the audience size.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CampaignService {
+
+    private static final List<String> EMAIL_FIELDS = List.of("email", "to", "recipient");
+    private static final List<String> PUSH_FIELDS = List.of("deviceId", "token", "deviceToken", "recipient");
+
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${notification.campaign.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notification.campaign.max-error-samples:100}")
+    private int maxErrorSamples;
+
+    /**
+     * Send an email to every recipient in the stream
+     */
+    public NotificationResponse sendEmailCampaign(InputStream recipients, RecipientReader.Format format,
+                                                  String title, String body, List<String> cc) {
+        log.info("Starting email campaign from {} upload", format);
+        RecipientReader reader = new RecipientReader(recipients, format, EMAIL_FIELDS, objectMapper);
+        return run("Email", reader, notificationService::isValidEmail,
+                batch -> notificationService.sendEmailNotification(new EmailNotificationRequest(batch, cc, title, body)));
+    }
+
+    /**
+     * Send a push notification to every device token in the stream
+     */
+    public NotificationResponse sendPushCampaign(InputStream recipients, RecipientReader.Format format,
+                                                 String title, String description, String imageUrl) {
+        log.info("Starting push campaign from {} upload", format);
+        RecipientReader reader = new RecipientReader(recipients, format, PUSH_FIELDS, objectMapper);
+        return run("Push", reader, notificationService::isValidDeviceToken,
+                batch -> notificationService.sendPushNotification(new PushNotificationRequest(batch, title, description, imageUrl)));
+    }
+
+    private NotificationResponse run(String channel, RecipientReader reader, Predicate<String> validator,
+                                     Function<List<String>, NotificationResponse> sendBatch) {
+        CampaignTally tally = new CampaignTally();
+        int size = Math.max(1, batchSize);
+
+        try (reader) {
+            List<String> batch;
+            while (!(batch = reader.nextBatch(size)).isEmpty()) {
+                List<String> valid = new ArrayList<>(batch.size());
+                for (String recipient : batch) {
+                    if (validator.test(recipient)) {
+                        valid.add(recipient);
+                    } else {
+                        tally.failureCount++;
+                        tally.errors.add("INVALID_RECIPIENT", "Invalid recipient: " + recipient);
+                    }
+                }
+                if (!valid.isEmpty()) {
+                    tally.add(sendBatch.apply(valid));
+                }
+                tally.batches++;
+                log.debug("{} campaign batch {} done, {} recipients so far", channel, tally.batches, tally.recipients());
+            }
+        } catch (IOException e) {
+            log.error("{} campaign aborted after {} recipients: {}", channel, tally.recipients(), e.getMessage(), e);
+            return tally.toResponse(false, channel + " campaign aborted while reading recipients: " + e.getMessage(), reader);
+        }
+
+        String message = String.format("%s campaign sent in %d batches. Success: %d, Failed: %d, Retrying: %d, Skipped: %d, Invalid lines: %d",
+                channel, tally.batches, tally.successCount, tally.failureCount, tally.retryingCount, tally.skippedCount,
+                reader.getInvalidCount());
+        log.info(message);
+        return tally.toResponse(true, message, reader);
+    }
+
+    /**
+     * Campaign-wide counters; error messages are aggregated by code with a capped sample
+     */
+    private final class CampaignTally {
+        private int batches;
+        private int successCount;
+        private int failureCount;
+        private int retryingCount;
+        private int skippedCount;
+        private final ErrorSummary errors = new ErrorSummary(maxErrorSamples);
+
+        private void add(NotificationResponse response) {
+            if (!response.isSuccess()) {
+                // The whole batch failed before any recipient was attempted
+                errors.add("BATCH_FAILED", response.getMessage());
+            }
+            successCount += response.getSuccessCount();
+            failureCount += response.getFailureCount();
+            retryingCount += response.getRetryingCount();
+            skippedCount += response.getSkippedCount();
+            if (response.getData() instanceof ErrorSummary batchErrors) {
+                errors.merge(batchErrors);
+            }
+        }
+
+        private long recipients() {
+            return (long) successCount + failureCount + retryingCount + skippedCount;
+        }
+
+        private NotificationResponse toResponse(boolean success, String message, RecipientReader reader) {
+            if (reader.getInvalidCount() > 0) {
+                errors.getCountsByCode().merge("INVALID_LINE", (int) reader.getInvalidCount(), Integer::sum);
+                errors.addSample(reader.getLastInvalid());
+            }
+            NotificationResponse response = new NotificationResponse(success, message, successCount, failureCount,
+                    errors.isEmpty() ? null : errors);
+            response.setRetryingCount(retryingCount);
+            response.setSkippedCount(skippedCount);
+            return response;
+        }
+    }
+}
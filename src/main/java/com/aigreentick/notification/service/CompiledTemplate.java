@@ -0,0 +1,123 @@
+package com.aigreentick.notification.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Template text parsed once into alternating literal and {{variable}} segments.
+ * Instances are immutable and safe to share; rendering walks the segments once into a reused per-thread builder.
+ */
+public final class CompiledTemplate {
+
+    private static final int MAX_RETAINED_BUILDER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    // literals.length == names.length + 1: literal, name, literal, name, ..., literal
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+    private final Set<String> variables;
+
+    private CompiledTemplate(String[] literals, String[] names) {
+        this.literals = literals;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+        Set<String> distinct = new LinkedHashSet<>();
+        Collections.addAll(distinct, names);
+        this.variables = Collections.unmodifiableSet(distinct);
+    }
+
+    /**
+     * Parse template text.
+     *
+     * @throws IllegalArgumentException if a {{ is not closed or a variable name is empty or contains
+     *                                  characters other than letters, digits, '_', '.' and '-'
+     */
+    public static CompiledTemplate compile(String text) {
+        if (text == null) {
+            text = "";
+        }
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = text.indexOf("{{", position)) >= 0) {
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed '{{' at position " + open);
+            }
+            String name = text.substring(open + 2, close).trim();
+            if (!isValidName(name)) {
+                throw new IllegalArgumentException("Invalid template variable '" + text.substring(open, close + 2) + "' at position " + open);
+            }
+            literals.add(text.substring(position, open));
+            names.add(name);
+            position = close + 2;
+        }
+        literals.add(text.substring(position));
+        return new CompiledTemplate(literals.toArray(new String[0]), names.toArray(new String[0]));
+    }
+
+    /**
+     * Names of all variables the template uses
+     */
+    public Set<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Render with the given values.
+     *
+     * @throws IllegalArgumentException if a variable has no value
+     */
+    public String render(Map<String, String> values) {
+        if (names.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = BUILDER.get();
+        out.setLength(0);
+        out.ensureCapacity(literalLength + 16 * names.length);
+        renderTo(values, out);
+        String rendered = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUILDER) {
+            BUILDER.remove();
+        }
+        return rendered;
+    }
+
+    /**
+     * Append the rendered text to out
+     */
+    public void renderTo(Map<String, String> values, StringBuilder out) {
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            String value = values.get(names[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for template variable '" + names[i] + "'");
+            }
+            out.append(value);
+        }
+        out.append(literals[names.length]);
+    }
+
+    private static boolean isValidName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '.' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
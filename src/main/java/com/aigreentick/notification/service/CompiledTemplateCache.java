@@ -0,0 +1,85 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.entity.EmailTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiled forms of stored email templates, keyed by template ID and tagged with the @Version they were compiled from.
+ * A template saved since it was compiled has a newer version and is compiled again on its next use.
+ * Push templates are sent as stored and are not compiled.
+ */
+@Component
+public class CompiledTemplateCache {
+
+    private final ConcurrentMap<String, Compiled> emailTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * Compiled title and body of one template version
+     */
+    public static final class Compiled {
+        private final Long version;
+        private final CompiledTemplate title;
+        private final CompiledTemplate body;
+
+        private Compiled(Long version, CompiledTemplate title, CompiledTemplate body) {
+            this.version = version;
+            this.title = title;
+            this.body = body;
+        }
+
+        public CompiledTemplate getTitle() { return title; }
+        public CompiledTemplate getBody() { return body; }
+
+        private Compiled withVersion(Long newVersion) {
+            return new Compiled(newVersion, title, body);
+        }
+    }
+
+    /**
+     * Compile template text without caching it; used to validate a template before it is saved
+     *
+     * @throws IllegalArgumentException if either text has a malformed placeholder
+     */
+    public Compiled compile(String title, String body) {
+        return new Compiled(null, CompiledTemplate.compile(title), CompiledTemplate.compile(body));
+    }
+
+    public Compiled email(EmailTemplate template) {
+        return get(emailTemplates, template.getId(), template.getVersion(), template.getTitle(), template.getBody());
+    }
+
+    /**
+     * Cache a form compiled before the save under the version the save produced
+     */
+    public void putEmail(EmailTemplate saved, Compiled compiled) {
+        emailTemplates.put(saved.getId(), compiled.withVersion(saved.getVersion()));
+    }
+
+    public void evictEmail(String id) {
+        emailTemplates.remove(id);
+    }
+
+    private Compiled get(ConcurrentMap<String, Compiled> cache, String id, Long version, String title, String body) {
+        Compiled cached = cache.get(id);
+        if (cached != null && Objects.equals(cached.version, version)) {
+            return cached;
+        }
+        Compiled compiled = new Compiled(version, CompiledTemplate.compile(title), CompiledTemplate.compile(body));
+        cache.merge(id, compiled, (current, fresh) -> newer(current, fresh));
+        return compiled;
+    }
+
+    /**
+     * Keep whichever entry has the higher version so a slow compile of an old version cannot replace a newer one
+     */
+    private static Compiled newer(Compiled current, Compiled fresh) {
+        if (current.version == null || fresh.version == null) {
+            return fresh;
+        }
+        return fresh.version >= current.version ? fresh : current;
+    }
+}
@@ -0,0 +1,158 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.exception.RateLimitExceededException;
+import com.google.firebase.ErrorCode;
+import com.google.firebase.FirebaseException;
+import com.google.firebase.IncomingHttpResponse;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MessagingErrorCode;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps provider exceptions to an error code and decides whether the failure is worth retrying.
+ */
+public final class DeliveryErrorClassifier {
+
+    private static final Set<MessagingErrorCode> TRANSIENT_MESSAGING_CODES = EnumSet.of(
+            MessagingErrorCode.UNAVAILABLE,
+            MessagingErrorCode.INTERNAL,
+            MessagingErrorCode.QUOTA_EXCEEDED
+    );
+
+    private static final Set<ErrorCode> TRANSIENT_PLATFORM_CODES = EnumSet.of(
+            ErrorCode.UNAVAILABLE,
+            ErrorCode.INTERNAL,
+            ErrorCode.DEADLINE_EXCEEDED,
+            ErrorCode.RESOURCE_EXHAUSTED
+    );
+
+    public static final String RATE_LIMITED = "RATE_LIMITED";
+
+    private DeliveryErrorClassifier() {
+    }
+
+    public static final class Classification {
+        private final String errorCode;
+        private final boolean retryable;
+        private final long retryAfterMillis;
+
+        private Classification(String errorCode, boolean retryable, long retryAfterMillis) {
+            this.errorCode = errorCode;
+            this.retryable = retryable;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public String getErrorCode() { return errorCode; }
+        public boolean isRetryable() { return retryable; }
+        public long getRetryAfterMillis() { return retryAfterMillis; }
+    }
+
+    /**
+     * Classify an FCM failure by its MessagingErrorCode, falling back to the platform ErrorCode
+     */
+    public static Classification classifyPush(Throwable e) {
+        if (e instanceof RateLimitExceededException) {
+            return new Classification(RATE_LIMITED, true, 0);
+        }
+        if (e instanceof FirebaseMessagingException fme && fme.getMessagingErrorCode() != null) {
+            MessagingErrorCode code = fme.getMessagingErrorCode();
+            return new Classification(code.name(), TRANSIENT_MESSAGING_CODES.contains(code), retryAfter(fme));
+        }
+        if (e instanceof FirebaseException fe && fe.getErrorCode() != null) {
+            ErrorCode code = fe.getErrorCode();
+            return new Classification(code.name(), TRANSIENT_PLATFORM_CODES.contains(code), retryAfter(fe));
+        }
+        if (hasCause(e, IOException.class)) {
+            return new Classification("NETWORK", true, 0);
+        }
+        return new Classification(null, false, 0);
+    }
+
+    /**
+     * Classify a mail failure by SMTP reply code: 4xx is transient, 5xx is permanent.
+     * Connection and I/O failures without a reply code are treated as transient.
+     */
+    public static Classification classifyMail(Throwable e) {
+        if (e instanceof RateLimitExceededException) {
+            return new Classification(RATE_LIMITED, true, 0);
+        }
+        int replyCode = smtpReplyCode(e);
+        if (replyCode > 0) {
+            return new Classification("SMTP_" + replyCode, replyCode >= 400 && replyCode < 500, 0);
+        }
+        if (hasCause(e, IOException.class)) {
+            return new Classification("SMTP_CONNECTION", true, 0);
+        }
+        return new Classification(null, false, 0);
+    }
+
+    private static int smtpReplyCode(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof SMTPAddressFailedException afe) {
+                return afe.getReturnCode();
+            }
+            if (t instanceof SMTPSenderFailedException sfe) {
+                return sfe.getReturnCode();
+            }
+            if (t instanceof SMTPSendFailedException sfe) {
+                return sfe.getReturnCode();
+            }
+        }
+        return -1;
+    }
+
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read a Retry-After header (delta seconds or HTTP date) from the FCM response, if any
+     */
+    private static long retryAfter(FirebaseException e) {
+        IncomingHttpResponse response = e.getHttpResponse();
+        if (response == null || response.getHeaders() == null) {
+            return 0;
+        }
+        Object value = null;
+        for (Map.Entry<String, Object> header : response.getHeaders().entrySet()) {
+            if ("retry-after".equalsIgnoreCase(header.getKey())) {
+                value = header.getValue();
+                break;
+            }
+        }
+        if (value instanceof List<?> values) {
+            value = values.isEmpty() ? null : values.get(0);
+        }
+        if (value == null) {
+            return 0;
+        }
+        String text = value.toString().trim();
+        try {
+            return Math.max(0, Long.parseLong(text) * 1000);
+        } catch (NumberFormatException ignored) {
+            // Not delta seconds, try an HTTP date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(text, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (Exception ignored) {
+            return 0;
+        }
+    }
+}
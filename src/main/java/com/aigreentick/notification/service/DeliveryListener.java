@@ -0,0 +1,19 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryResult;
+
+/**
+ * Receives the outcome for each recipient while a send is running.
+ * A recipient that fails transiently is passed to {@link #onRetrying} when it is handed to the retry scheduler,
+ * and its final outcome is passed to {@link #onDelivery} from the retry thread once its retries end.
+ */
+@FunctionalInterface
+public interface DeliveryListener {
+
+    DeliveryListener NONE = result -> { };
+
+    void onDelivery(DeliveryResult result);
+
+    default void onRetrying(DeliveryResult result) {
+    }
+}
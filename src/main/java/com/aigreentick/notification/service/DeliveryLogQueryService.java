@@ -0,0 +1,236 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryLogEntry;
+import com.aigreentick.notification.dto.DeliveryLogPage;
+import com.aigreentick.notification.entity.DeliveryRecord;
+import com.aigreentick.notification.entity.EmailNotificationLog;
+import com.aigreentick.notification.entity.MigrationCheckpoint;
+import com.aigreentick.notification.entity.NotificationContent;
+import com.aigreentick.notification.entity.PushNotificationLog;
+import com.aigreentick.notification.repository.MigrationCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the delivery log page by page, newest first.
+ *
+ * <p>Pages are keyed on (sentAt, _id) instead of skipped by offset: the cursor holds the position of the last
+ * record returned, and the next page starts strictly after it, so every page costs the same index range scan
+ * no matter how deep it is. The channel-first indexes on delivery_records end in (sentAt, _id) to match.
+ * Every filter is an equality on the fields before (sentAt, _id) in one of them, (channel, recipient) or
+ * (channel, delivered), so the plan is an index scan in sort order with no blocking SORT stage; without a
+ * channel filter the scans of both channels are merged in order (SORT_MERGE).
+ *
+ * <p>Until the delivery record migration reports a legacy collection as copied, the entries of
+ * email_notification_logs and push_notification_logs after its checkpoint are read as well and merged in.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeliveryLogQueryService {
+
+    private static final String CURSOR_SEPARATOR = "|";
+    private static final Comparator<DeliveryRecord> NEWEST_FIRST =
+            Comparator.comparing(DeliveryRecord::getSentAt).thenComparing(DeliveryRecord::getId).reversed();
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationContentService notificationContentService;
+    private final MigrationCheckpointRepository migrationCheckpointRepository;
+
+    /**
+     * Channels whose legacy collection has been migrated, so their checkpoint is no longer read
+     */
+    private final Set<DeliveryRecord.Channel> migrated = ConcurrentHashMap.newKeySet();
+
+    @Value("${notification.logs.max-page-size:500}")
+    private int maxPageSize;
+
+    /**
+     * Find delivery records matching every given filter
+     *
+     * @param from   inclusive lower bound on send time
+     * @param to     exclusive upper bound on send time
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    public DeliveryLogPage findLogs(DeliveryRecord.Channel channel, String recipient, Boolean success,
+                                    LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+
+        List<Criteria> filters = new ArrayList<>();
+        // Without a channel filter every channel is listed, so the channel-first indexes still apply
+        filters.add(channel != null ? Criteria.where("channel").is(channel)
+                : Criteria.where("channel").in(EnumSet.allOf(DeliveryRecord.Channel.class)));
+        if (recipient != null && !recipient.isBlank()) {
+            filters.add(Criteria.where("recipient").is(recipient));
+        }
+        if (success != null) {
+            filters.add(Criteria.where("delivered").is(success));
+        }
+        if (from != null) {
+            filters.add(Criteria.where("sentAt").gte(from));
+        }
+        if (to != null) {
+            filters.add(Criteria.where("sentAt").lt(to));
+        }
+        Position after = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : null;
+        if (after != null) {
+            filters.add(new Criteria().orOperator(
+                    Criteria.where("sentAt").lt(after.sentAt()),
+                    Criteria.where("sentAt").is(after.sentAt()).and("id").lt(after.id())));
+        }
+
+        // One extra record tells whether there is a next page
+        Query query = new Query(new Criteria().andOperator(filters))
+                .with(Sort.by(Sort.Order.desc("sentAt"), Sort.Order.desc("id")))
+                .limit(limit + 1);
+        List<DeliveryRecord> records = mongoTemplate.find(query, DeliveryRecord.class);
+
+        Map<ObjectId, NotificationContent> inlineContents = new HashMap<>();
+        List<DeliveryRecord> legacy = findUnmigrated(channel, recipient, success, from, to, after, limit + 1, inlineContents);
+        if (!legacy.isEmpty()) {
+            // A record copied before its checkpoint was saved is also found in the legacy collection
+            Map<ObjectId, DeliveryRecord> merged = new LinkedHashMap<>();
+            records.forEach(record -> merged.put(record.getId(), record));
+            legacy.forEach(record -> merged.putIfAbsent(record.getId(), record));
+            records = new ArrayList<>(merged.values());
+            records.sort(NEWEST_FIRST);
+        }
+        boolean hasMore = records.size() > limit;
+        if (hasMore) {
+            records = records.subList(0, limit);
+        }
+
+        Map<String, NotificationContent> contents = notificationContentService.load(records, DeliveryRecord::getContentId);
+        List<DeliveryLogEntry> items = new ArrayList<>(records.size());
+        for (DeliveryRecord record : records) {
+            items.add(new DeliveryLogEntry(record, record.getStatus() == DeliveryStatus.DELIVERED,
+                    DeliveryStatus.errorCode(record.getStatus()),
+                    record.getContentId() != null ? contents.get(record.getContentId()) : inlineContents.get(record.getId())));
+        }
+        String nextCursor = hasMore ? encodeCursor(records.get(records.size() - 1)) : null;
+        return new DeliveryLogPage(items, nextCursor);
+    }
+
+    /**
+     * Matching legacy log entries after the migration checkpoint of each channel that is not migrated yet,
+     * converted the way the migration converts them. Content stored on an entry itself goes to inlineContents.
+     */
+    private List<DeliveryRecord> findUnmigrated(DeliveryRecord.Channel channel, String recipient, Boolean success,
+                                                LocalDateTime from, LocalDateTime to, Position after, int limit,
+                                                Map<ObjectId, NotificationContent> inlineContents) {
+        List<DeliveryRecord> records = new ArrayList<>();
+        for (DeliveryRecord.Channel legacyChannel : channel != null ? EnumSet.of(channel) : EnumSet.allOf(DeliveryRecord.Channel.class)) {
+            MigrationCheckpoint checkpoint = pendingMigration(legacyChannel);
+            if (checkpoint == null) {
+                continue;
+            }
+            List<Criteria> filters = new ArrayList<>();
+            if (checkpoint.getLastId() != null) {
+                filters.add(Criteria.where("id").gt(new ObjectId(checkpoint.getLastId())));
+            }
+            if (recipient != null && !recipient.isBlank()) {
+                filters.add(Criteria.where(legacyChannel == DeliveryRecord.Channel.EMAIL ? "to" : "deviceId").is(recipient));
+            }
+            if (success != null) {
+                filters.add(success ? Criteria.where("success").is(true) : Criteria.where("success").ne(true));
+            }
+            if (from != null) {
+                filters.add(Criteria.where("sentAt").gte(from));
+            }
+            if (to != null) {
+                filters.add(Criteria.where("sentAt").lt(to));
+            }
+            if (after != null) {
+                filters.add(new Criteria().orOperator(
+                        Criteria.where("sentAt").lt(after.sentAt()),
+                        Criteria.where("sentAt").is(after.sentAt()).and("id").lt(after.id())));
+            }
+            Query query = new Query(filters.isEmpty() ? new Criteria() : new Criteria().andOperator(filters))
+                    .with(Sort.by(Sort.Order.desc("sentAt"), Sort.Order.desc("id")))
+                    .limit(limit);
+
+            if (legacyChannel == DeliveryRecord.Channel.EMAIL) {
+                for (EmailNotificationLog entry : mongoTemplate.find(query, EmailNotificationLog.class)) {
+                    DeliveryRecord record = DeliveryRecordMigration.toRecord(entry.getId(), legacyChannel, entry.getTo(),
+                            entry.getContentId(), entry.getSuccess(), entry.getErrorMessage(), entry.getSentAt());
+                    if (entry.getContentId() == null) {
+                        inlineContents.put(record.getId(), new NotificationContent(null, entry.getTitle(), entry.getBody(),
+                                entry.getCc(), null, null, null, null));
+                    }
+                    records.add(record);
+                }
+            } else {
+                for (PushNotificationLog entry : mongoTemplate.find(query, PushNotificationLog.class)) {
+                    DeliveryRecord record = DeliveryRecordMigration.toRecord(entry.getId(), legacyChannel, entry.getDeviceId(),
+                            entry.getContentId(), entry.getSuccess(), entry.getErrorMessage(), entry.getSentAt());
+                    if (entry.getContentId() == null) {
+                        inlineContents.put(record.getId(), new NotificationContent(null, entry.getTitle(), null,
+                                null, entry.getDescription(), entry.getImageUrl(), null, null));
+                    }
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Checkpoint of the channel's legacy log migration, or null once the migration has completed
+     */
+    private MigrationCheckpoint pendingMigration(DeliveryRecord.Channel channel) {
+        if (migrated.contains(channel)) {
+            return null;
+        }
+        String id = channel == DeliveryRecord.Channel.EMAIL
+                ? DeliveryRecordMigration.EMAIL_CHECKPOINT : DeliveryRecordMigration.PUSH_CHECKPOINT;
+        MigrationCheckpoint checkpoint = migrationCheckpointRepository.findById(id)
+                .orElseGet(() -> new MigrationCheckpoint(id, null, false, null));
+        if (checkpoint.isCompleted()) {
+            migrated.add(channel);
+            return null;
+        }
+        return checkpoint;
+    }
+
+    private record Position(LocalDateTime sentAt, ObjectId id) {
+    }
+
+    private static String encodeCursor(DeliveryRecord last) {
+        String position = last.getSentAt() + CURSOR_SEPARATOR + last.getId().toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(CURSOR_SEPARATOR);
+            return new Position(LocalDateTime.parse(position.substring(0, separator)),
+                    new ObjectId(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
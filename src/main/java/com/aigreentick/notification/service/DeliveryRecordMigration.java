@@ -0,0 +1,184 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.entity.DeliveryRecord;
+import com.aigreentick.notification.entity.EmailNotificationLog;
+import com.aigreentick.notification.entity.MigrationCheckpoint;
+import com.aigreentick.notification.entity.PushNotificationLog;
+import com.aigreentick.notification.repository.MigrationCheckpointRepository;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Copies email_notification_logs and push_notification_logs into delivery_records.
+ *
+ * <p>Documents are copied in _id order in batches, and the last copied _id is checkpointed after each batch, so
+ * the migration resumes where it stopped after a restart. Records keep the _id of their source document. A run
+ * that stopped between inserting a batch and saving its checkpoint copies that batch again, so the first batch of
+ * every run deletes the records it is about to copy before inserting them; time-series collections do not enforce
+ * unique _id, so the insert alone would store them twice. The source collections are left in place.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeliveryRecordMigration {
+
+    public static final String EMAIL_CHECKPOINT = "delivery-records-email";
+    public static final String PUSH_CHECKPOINT = "delivery-records-push";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MigrationCheckpointRepository migrationCheckpointRepository;
+    private final NotificationContentService notificationContentService;
+
+    @Value("${notification.delivery-log.migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${notification.delivery-log.migration.batch-size:1000}")
+    private int batchSize;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "delivery-record-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    private void run() {
+        try {
+            migrate(EMAIL_CHECKPOINT, EmailNotificationLog.class, EmailNotificationLog::getId, this::fromEmailLog);
+            migrate(PUSH_CHECKPOINT, PushNotificationLog.class, PushNotificationLog::getId, this::fromPushLog);
+        } catch (Exception e) {
+            log.error("Delivery record migration stopped, it resumes from its checkpoint on the next start: {}", e.getMessage(), e);
+        }
+    }
+
+    private <T> void migrate(String checkpointId, Class<T> type, Function<T, String> idOf, Function<T, DeliveryRecord> convert) {
+        MigrationCheckpoint checkpoint = migrationCheckpointRepository.findById(checkpointId)
+                .orElseGet(() -> new MigrationCheckpoint(checkpointId, null, false, null));
+        if (checkpoint.isCompleted()) {
+            return;
+        }
+        String collection = mongoTemplate.getCollectionName(type);
+        log.info("Migrating {} into delivery_records{}", collection,
+                checkpoint.getLastId() != null ? " from _id " + checkpoint.getLastId() : "");
+
+        long copied = 0;
+        // Only the batch after the checkpoint can have been copied already
+        boolean resumed = checkpoint.getLastId() != null;
+        while (running) {
+            Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).limit(Math.max(1, batchSize));
+            if (checkpoint.getLastId() != null) {
+                query.addCriteria(Criteria.where("_id").gt(new ObjectId(checkpoint.getLastId())));
+            }
+            List<T> batch = mongoTemplate.find(query, type);
+            if (batch.isEmpty()) {
+                checkpoint.setCompleted(true);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                migrationCheckpointRepository.save(checkpoint);
+                log.info("Migrated {}: {} documents copied in this run", collection, copied);
+                return;
+            }
+            List<DeliveryRecord> records = batch.stream().map(convert).toList();
+            if (resumed) {
+                removeEarlierCopies(records);
+                resumed = false;
+            }
+            insert(records);
+            checkpoint.setLastId(idOf.apply(batch.get(batch.size() - 1)));
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            migrationCheckpointRepository.save(checkpoint);
+            copied += batch.size();
+            log.debug("Copied {} documents from {}", copied, collection);
+        }
+    }
+
+    /**
+     * Delete records an interrupted earlier run copied from this batch
+     */
+    private void removeEarlierCopies(List<DeliveryRecord> records) {
+        List<ObjectId> ids = records.stream().map(DeliveryRecord::getId).toList();
+        long removed = mongoTemplate.remove(new Query(Criteria.where("channel").is(records.get(0).getChannel())
+                .and("_id").in(ids)), DeliveryRecord.class).getDeletedCount();
+        if (removed > 0) {
+            log.info("Removed {} delivery records copied by an interrupted run before copying them again", removed);
+        }
+    }
+
+    /**
+     * Unordered insert; a regular collection rejects records that are already stored as duplicates, which are skipped
+     */
+    private void insert(List<DeliveryRecord> records) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DeliveryRecord.class).insert(records).execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private DeliveryRecord fromEmailLog(EmailNotificationLog legacy) {
+        String contentId = legacy.getContentId() != null ? legacy.getContentId()
+                : notificationContentService.storeEmailContent(legacy.getTitle(), legacy.getBody(), legacy.getCc());
+        return toRecord(legacy.getId(), DeliveryRecord.Channel.EMAIL, legacy.getTo(), contentId,
+                legacy.getSuccess(), legacy.getErrorMessage(), legacy.getSentAt());
+    }
+
+    private DeliveryRecord fromPushLog(PushNotificationLog legacy) {
+        String contentId = legacy.getContentId() != null ? legacy.getContentId()
+                : notificationContentService.storePushContent(legacy.getTitle(), legacy.getDescription(), legacy.getImageUrl());
+        return toRecord(legacy.getId(), DeliveryRecord.Channel.PUSH, legacy.getDeviceId(), contentId,
+                legacy.getSuccess(), legacy.getErrorMessage(), legacy.getSentAt());
+    }
+
+    /**
+     * Legacy entries only have error text, so failures are stored as unknown errors with their message
+     */
+    static DeliveryRecord toRecord(String id, DeliveryRecord.Channel channel, String recipient, String contentId,
+                                   Boolean success, String errorMessage, LocalDateTime sentAt) {
+        boolean delivered = Boolean.TRUE.equals(success);
+        ObjectId objectId = id != null && ObjectId.isValid(id) ? new ObjectId(id) : new ObjectId();
+        return new DeliveryRecord(
+                objectId,
+                channel,
+                recipient,
+                contentId,
+                delivered ? DeliveryStatus.DELIVERED : DeliveryStatus.UNKNOWN,
+                delivered,
+                delivered ? null : errorMessage,
+                sentAt != null ? sentAt : LocalDateTime.ofInstant(objectId.getDate().toInstant(), ZoneId.systemDefault())
+        );
+    }
+}
@@ -0,0 +1,324 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryStatsBucket;
+import com.aigreentick.notification.dto.DeliveryStatsResponse;
+import com.aigreentick.notification.entity.DeliveryRecord;
+import com.aigreentick.notification.entity.DeliveryStats;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts deliveries per channel, template and error code, and rolls the counts up into minute, hour and day
+ * buckets in delivery_stats, so delivery statistics are read from a few small documents instead of the log.
+ *
+ * <p>Senders only increment an in-memory {@link LongAdder} per (minute, channel, template, error code).
+ * Every flush-interval-ms the counts are taken and added to their buckets with one unordered bulk of $inc upserts.
+ * Bucket updates that fail are kept and added to the next flush, so counts are delayed rather than lost while
+ * Mongo is unavailable.
+ */
+@Service
+@Slf4j
+public class DeliveryStatsService {
+
+    private static final String NO_TEMPLATE = "none";
+    private static final String UNKNOWN_ERROR = "UNKNOWN";
+
+    private final MongoTemplate mongoTemplate;
+    private final long flushIntervalMs;
+    private final int maxBuckets;
+    private final Map<DeliveryStats.Granularity, Long> retentionDays;
+
+    private final ConcurrentHashMap<Counter, LongAdder> counters = new ConcurrentHashMap<>();
+    private final List<Map.Entry<Counter, LongAdder>> retired = new ArrayList<>();
+    private final Map<String, BucketUpdate> pending = new LinkedHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public DeliveryStatsService(MongoTemplate mongoTemplate,
+                                @Value("${notification.stats.flush-interval-ms:10000}") long flushIntervalMs,
+                                @Value("${notification.stats.max-buckets:1440}") int maxBuckets,
+                                @Value("${notification.stats.minute-retention-days:7}") long minuteRetentionDays,
+                                @Value("${notification.stats.hour-retention-days:90}") long hourRetentionDays,
+                                @Value("${notification.stats.day-retention-days:0}") long dayRetentionDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBuckets = maxBuckets;
+        this.retentionDays = Map.of(
+                DeliveryStats.Granularity.MINUTE, minuteRetentionDays,
+                DeliveryStats.Granularity.HOUR, hourRetentionDays,
+                DeliveryStats.Granularity.DAY, dayRetentionDays);
+    }
+
+    /**
+     * Minute the deliveries happened in, and null errorCode for delivered
+     */
+    private record Counter(LocalDateTime minute, DeliveryRecord.Channel channel, String template, String errorCode) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            mongoTemplate.indexOps(DeliveryStats.class).ensureIndex(new Index()
+                    .on("granularity", Sort.Direction.ASC)
+                    .on("channel", Sort.Direction.ASC)
+                    .on("bucketStart", Sort.Direction.ASC));
+            mongoTemplate.indexOps(DeliveryStats.class)
+                    .ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(0, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.warn("Failed to create delivery stats indexes: {}", e.getMessage());
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "delivery-stats-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            log.warn("Dropping {} unwritten delivery stats bucket updates on shutdown", pending.size());
+        }
+    }
+
+    /**
+     * Count one final delivery outcome
+     *
+     * @param template template name, or null for sends without a template
+     */
+    public void record(DeliveryRecord.Channel channel, String template, boolean success, String errorCode) {
+        Counter counter = new Counter(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES), channel,
+                template != null && !template.isBlank() ? template : NO_TEMPLATE,
+                success ? null : (errorCode != null && !errorCode.isBlank() ? errorCode : UNKNOWN_ERROR));
+        counters.computeIfAbsent(counter, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Rolled up counts of buckets starting in [from, to), oldest first
+     *
+     * @param channel null for every channel
+     * @param from    defaults to 60 minutes, 24 hours or 30 days before to
+     * @param to      defaults to now
+     */
+    public DeliveryStatsResponse getStats(DeliveryStats.Granularity granularity, DeliveryRecord.Channel channel,
+                                          LocalDateTime from, LocalDateTime to) {
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = switch (granularity) {
+                case MINUTE -> to.minusMinutes(60);
+                case HOUR -> to.minusHours(24);
+                case DAY -> to.minusDays(30);
+            };
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        LocalDateTime firstBucket = truncate(from, granularity);
+        if (Duration.between(firstBucket, to).toMinutes() / bucketMinutes(granularity) >= maxBuckets) {
+            throw new IllegalArgumentException("Time range covers more than " + maxBuckets + " "
+                    + granularity.name().toLowerCase() + " buckets");
+        }
+
+        Query query = new Query(Criteria.where("granularity").is(granularity)
+                .and("channel").in(channel != null ? EnumSet.of(channel) : EnumSet.allOf(DeliveryRecord.Channel.class))
+                .and("bucketStart").gte(firstBucket).lt(to))
+                .with(Sort.by("bucketStart", "channel"));
+        List<DeliveryStats> stats = mongoTemplate.find(query, DeliveryStats.class);
+
+        long delivered = 0;
+        long failed = 0;
+        Map<String, Long> errors = new TreeMap<>();
+        List<DeliveryStatsBucket> buckets = new ArrayList<>(stats.size());
+        for (DeliveryStats bucket : stats) {
+            delivered += bucket.getDelivered();
+            failed += bucket.getFailed();
+            if (bucket.getErrors() != null) {
+                bucket.getErrors().forEach((code, count) -> errors.merge(code, count, Long::sum));
+            }
+            buckets.add(new DeliveryStatsBucket(bucket));
+        }
+        return new DeliveryStatsResponse(granularity, firstBucket, to, delivered, failed, errors, buckets);
+    }
+
+    /**
+     * Add the counts taken since the last flush to their minute, hour and day buckets
+     */
+    synchronized void flush() {
+        try {
+            LocalDateTime currentMinute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            Map<Counter, Long> counts = new HashMap<>();
+            // A sender that looked up an adder just before it was retired may still have incremented it
+            for (Map.Entry<Counter, LongAdder> entry : retired) {
+                take(counts, entry.getKey(), entry.getValue());
+            }
+            retired.clear();
+            Iterator<Map.Entry<Counter, LongAdder>> it = counters.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Counter, LongAdder> entry = it.next();
+                // Past minutes get no new deliveries, so their adders are dropped after one more flush
+                if (entry.getKey().minute().isBefore(currentMinute)) {
+                    it.remove();
+                    retired.add(entry);
+                }
+                take(counts, entry.getKey(), entry.getValue());
+            }
+
+            counts.forEach((counter, count) -> {
+                for (DeliveryStats.Granularity granularity : DeliveryStats.Granularity.values()) {
+                    LocalDateTime bucketStart = truncate(counter.minute(), granularity);
+                    String id = granularity + ":" + counter.channel() + ":" + bucketStart;
+                    pending.computeIfAbsent(id, key -> new BucketUpdate(id, granularity, counter.channel(), bucketStart))
+                            .add(counter, count);
+                }
+            });
+            if (!pending.isEmpty()) {
+                write();
+            }
+        } catch (Exception e) {
+            log.error("Failed to flush delivery stats: {}", e.getMessage(), e);
+        }
+    }
+
+    private static void take(Map<Counter, Long> counts, Counter counter, LongAdder adder) {
+        long count = adder.sumThenReset();
+        if (count > 0) {
+            counts.merge(counter, count, Long::sum);
+        }
+    }
+
+    /**
+     * Upsert the pending bucket updates; the ones that fail stay pending
+     */
+    private void write() {
+        List<BucketUpdate> updates = new ArrayList<>(pending.values());
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DeliveryStats.class);
+        for (BucketUpdate bucket : updates) {
+            ops.upsert(new Query(Criteria.where("id").is(bucket.id)), bucket.toUpdate());
+        }
+        try {
+            ops.execute();
+            pending.clear();
+        } catch (BulkOperationException e) {
+            // Two instances inserting the same new bucket at once fail one of them with a duplicate key;
+            // the retry on the next flush then increments the bucket the other one created
+            for (BucketUpdate bucket : updates) {
+                pending.remove(bucket.id);
+            }
+            for (BulkWriteError error : e.getErrors()) {
+                BucketUpdate failed = updates.get(error.getIndex());
+                pending.put(failed.id, failed);
+            }
+            log.warn("Failed to write {} of {} delivery stats buckets, retrying on the next flush",
+                    e.getErrors().size(), updates.size());
+        } catch (Exception e) {
+            log.warn("Failed to write {} delivery stats buckets, retrying on the next flush: {}",
+                    updates.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Increments for one bucket document, summed per field
+     */
+    private final class BucketUpdate {
+        private final String id;
+        private final DeliveryStats.Granularity granularity;
+        private final DeliveryRecord.Channel channel;
+        private final LocalDateTime bucketStart;
+        private final Map<String, Long> increments = new HashMap<>();
+
+        private BucketUpdate(String id, DeliveryStats.Granularity granularity, DeliveryRecord.Channel channel,
+                             LocalDateTime bucketStart) {
+            this.id = id;
+            this.granularity = granularity;
+            this.channel = channel;
+            this.bucketStart = bucketStart;
+        }
+
+        private void add(Counter counter, long count) {
+            String outcome = counter.errorCode() == null ? "delivered" : "failed";
+            increments.merge(outcome, count, Long::sum);
+            increments.merge("templates." + fieldName(counter.template()) + "." + outcome, count, Long::sum);
+            if (counter.errorCode() != null) {
+                increments.merge("errors." + fieldName(counter.errorCode()), count, Long::sum);
+            }
+        }
+
+        private Update toUpdate() {
+            Update update = new Update()
+                    .setOnInsert("granularity", granularity)
+                    .setOnInsert("channel", channel)
+                    .setOnInsert("bucketStart", bucketStart);
+            long retention = retentionDays.get(granularity);
+            if (retention > 0) {
+                update.setOnInsert("expiresAt", bucketStart.plusDays(retention));
+            }
+            increments.forEach(update::inc);
+            return update;
+        }
+    }
+
+    /**
+     * Template names and error codes become field names, so they must not contain a path separator or start with $
+     */
+    private static String fieldName(String key) {
+        String name = key.replace('.', '_');
+        return name.startsWith("$") ? "_" + name.substring(1) : name;
+    }
+
+    private static LocalDateTime truncate(LocalDateTime time, DeliveryStats.Granularity granularity) {
+        return switch (granularity) {
+            case MINUTE -> time.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+        };
+    }
+
+    private static long bucketMinutes(DeliveryStats.Granularity granularity) {
+        return switch (granularity) {
+            case MINUTE -> 1;
+            case HOUR -> 60;
+            case DAY -> 24 * 60;
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.aigreentick.notification.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Integer status codes stored in delivery records in place of error text.
+ *
+ * <p>0 means delivered and SMTP reply codes are stored as themselves. Other known error codes have fixed
+ * numbers from 1000 up; codes must never be renumbered, since stored records refer to them.
+ * Errors without a known code are stored as {@link #UNKNOWN} together with their message.
+ */
+public final class DeliveryStatus {
+
+    public static final int DELIVERED = 0;
+    public static final int UNKNOWN = 1;
+
+    private static final String SMTP_PREFIX = "SMTP_";
+    private static final Map<String, Integer> CODES = new HashMap<>();
+    private static final Map<Integer, String> NAMES = new HashMap<>();
+
+    static {
+        // Service and transport errors
+        register("SMTP_CONNECTION", 1000);
+        register("NETWORK", 1001);
+        register(DeliveryErrorClassifier.RATE_LIMITED, 1002);
+        register("TEMPLATE_ERROR", 1003);
+        register("INVALID_MESSAGE", 1004);
+        register("INVALID_ADDRESS", 1005);
+        register("INTERRUPTED", 1006);
+        // FCM messaging error codes
+        register("THIRD_PARTY_AUTH_ERROR", 1100);
+        register("INVALID_ARGUMENT", 1101);
+        register("INTERNAL", 1102);
+        register("QUOTA_EXCEEDED", 1103);
+        register("SENDER_ID_MISMATCH", 1104);
+        register("UNAVAILABLE", 1105);
+        register("UNREGISTERED", 1106);
+        // Firebase platform error codes
+        register("DEADLINE_EXCEEDED", 1200);
+        register("PERMISSION_DENIED", 1201);
+        register("UNAUTHENTICATED", 1202);
+        register("NOT_FOUND", 1203);
+        register("RESOURCE_EXHAUSTED", 1204);
+        register("CANCELLED", 1205);
+        register("ABORTED", 1206);
+        register("ALREADY_EXISTS", 1207);
+        register("CONFLICT", 1208);
+        register("DATA_LOSS", 1209);
+        register("FAILED_PRECONDITION", 1210);
+        register("OUT_OF_RANGE", 1211);
+    }
+
+    private DeliveryStatus() {
+    }
+
+    private static void register(String errorCode, int status) {
+        CODES.put(errorCode, status);
+        NAMES.put(status, errorCode);
+    }
+
+    /**
+     * Status for a delivery outcome; {@link #UNKNOWN} when the failure has no known error code
+     */
+    public static int of(boolean success, String errorCode) {
+        if (success) {
+            return DELIVERED;
+        }
+        if (errorCode == null) {
+            return UNKNOWN;
+        }
+        if (errorCode.startsWith(SMTP_PREFIX)) {
+            try {
+                int reply = Integer.parseInt(errorCode.substring(SMTP_PREFIX.length()));
+                if (reply >= 200 && reply < 600) {
+                    return reply;
+                }
+            } catch (NumberFormatException ignored) {
+                // Fall through to the named codes
+            }
+        }
+        return CODES.getOrDefault(errorCode, UNKNOWN);
+    }
+
+    /**
+     * Error code for a stored status, or null when delivered or unknown
+     */
+    public static String errorCode(int status) {
+        if (status == DELIVERED || status == UNKNOWN) {
+            return null;
+        }
+        if (status >= 200 && status < 600) {
+            return SMTP_PREFIX + status;
+        }
+        return NAMES.get(status);
+    }
+}
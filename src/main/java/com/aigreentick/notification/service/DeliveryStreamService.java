@@ -0,0 +1,167 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.NotificationResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Streams per-recipient delivery results to the client while a send runs.
+ * Results are written as they arrive instead of being collected, and a client that disconnects
+ * only stops the stream: the send itself always runs to completion. Outcomes of background retries
+ * that end after the summary was written are not streamed.
+ */
+@Service
+@Slf4j
+public class DeliveryStreamService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+
+    public DeliveryStreamService(ObjectMapper objectMapper,
+                                 @Value("${notification.stream.threads:8}") int threads) {
+        this.objectMapper = objectMapper;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "notification-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run the send and write one JSON line per recipient, followed by a final line with the summary
+     */
+    public StreamingResponseBody streamNdjson(Function<DeliveryListener, NotificationResponse> send) {
+        return out -> {
+            NdjsonWriter writer = new NdjsonWriter(out);
+            NotificationResponse summary = send.apply(writer::write);
+            writer.write(summary);
+            writer.close();
+        };
+    }
+
+    /**
+     * Run the send on a stream thread, emitting a "result" event per recipient and a final "summary" event
+     */
+    public SseEmitter streamSse(Function<DeliveryListener, NotificationResponse> send, long timeoutMs) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        SseWriter writer = new SseWriter(emitter);
+        try {
+            executor.execute(() -> {
+                try {
+                    NotificationResponse summary = send.apply(result -> writer.send("result", result));
+                    writer.send("summary", summary);
+                    writer.complete();
+                } catch (Exception e) {
+                    log.error("Streamed send failed: {}", e.getMessage(), e);
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * A stream holding only the given line, for requests rejected before their send started
+     */
+    public StreamingResponseBody ndjsonLine(Object value) {
+        return out -> {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write(NEWLINE);
+        };
+    }
+
+    /**
+     * An event stream holding only an "error" event, for requests rejected before their send started
+     */
+    public SseEmitter sseError(Object value) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(value));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private final class NdjsonWriter {
+        private final OutputStream out;
+        private boolean disconnected;
+
+        private NdjsonWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        private synchronized void write(Object value) {
+            if (disconnected) {
+                return;
+            }
+            try {
+                out.write(objectMapper.writeValueAsBytes(value));
+                out.write(NEWLINE);
+                out.flush();
+            } catch (IOException | RuntimeException e) {
+                disconnected = true;
+                log.debug("Client disconnected from result stream: {}", e.getMessage());
+            }
+        }
+
+        private synchronized void close() {
+            disconnected = true;
+        }
+    }
+
+    private static final class SseWriter {
+        private final SseEmitter emitter;
+        private volatile boolean disconnected;
+
+        private SseWriter(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(() -> disconnected = true);
+            emitter.onTimeout(() -> disconnected = true);
+            emitter.onError(e -> disconnected = true);
+        }
+
+        private synchronized void send(String name, Object data) {
+            if (disconnected) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            } catch (Exception e) {
+                disconnected = true;
+                log.debug("Client disconnected from result stream: {}", e.getMessage());
+            }
+        }
+
+        private synchronized void complete() {
+            if (!disconnected) {
+                disconnected = true;
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeviceRegistrationRequest;
+import com.aigreentick.notification.dto.DeviceRegistrationResponse;
+import com.aigreentick.notification.entity.DeviceRegistration;
+import com.aigreentick.notification.exception.DeviceRegistrationNotFoundException;
+import com.aigreentick.notification.repository.DeviceRegistrationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maps users to the FCM device tokens they have registered
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceRegistryService {
+
+    private final DeviceRegistrationRepository deviceRegistrationRepository;
+    private final DeviceTokenHealthService deviceTokenHealthService;
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(DeviceRegistration.class)
+                .ensureIndex(new Index().on("token", Sort.Direction.ASC).unique());
+        mongoTemplate.indexOps(DeviceRegistration.class)
+                .ensureIndex(new Index().on("userId", Sort.Direction.ASC));
+    }
+
+    /**
+     * Register a device token for a user.
+     * A token belongs to at most one user, so registering a known token moves it to the new user.
+     */
+    public DeviceRegistrationResponse register(DeviceRegistrationRequest request) {
+        log.info("Registering {} device for user {}", request.getPlatform(), request.getUserId());
+
+        DeviceRegistration saved;
+        try {
+            saved = deviceRegistrationRepository.save(upsert(request));
+        } catch (DuplicateKeyException e) {
+            // Another request registered the same token concurrently; update that document instead
+            saved = deviceRegistrationRepository.save(upsert(request));
+        }
+
+        // A re-registered token is valid again even if FCM rejected it earlier
+        deviceTokenHealthService.markAlive(request.getToken());
+        return new DeviceRegistrationResponse(saved);
+    }
+
+    /**
+     * Remove a device token from the registry
+     */
+    public void unregister(String token) {
+        DeviceRegistration registration = deviceRegistrationRepository.findByToken(token)
+                .orElseThrow(() -> new DeviceRegistrationNotFoundException("Device token is not registered"));
+        deviceRegistrationRepository.delete(registration);
+        log.info("Unregistered device for user {}", registration.getUserId());
+    }
+
+    /**
+     * Get all devices registered for a user
+     */
+    public List<DeviceRegistrationResponse> getDevicesForUser(String userId) {
+        return deviceRegistrationRepository.findByUserId(userId).stream()
+                .map(DeviceRegistrationResponse::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolve the device tokens of all given users with a single query, without duplicates
+     */
+    public List<String> resolveTokens(Collection<String> userIds) {
+        Set<String> distinctUserIds = new LinkedHashSet<>(userIds);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (DeviceRegistration registration : deviceRegistrationRepository.findTokensByUserIdIn(distinctUserIds)) {
+            tokens.add(registration.getToken());
+        }
+        log.debug("Resolved {} device tokens for {} users", tokens.size(), distinctUserIds.size());
+        return new ArrayList<>(tokens);
+    }
+
+    private DeviceRegistration upsert(DeviceRegistrationRequest request) {
+        DeviceRegistration registration = deviceRegistrationRepository.findByToken(request.getToken())
+                .orElseGet(DeviceRegistration::new);
+        registration.setUserId(request.getUserId());
+        registration.setToken(request.getToken());
+        registration.setPlatform(request.getPlatform());
+        return registration;
+    }
+}
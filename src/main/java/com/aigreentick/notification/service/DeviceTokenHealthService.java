@@ -0,0 +1,108 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryResult;
+import com.aigreentick.notification.entity.DeadDeviceToken;
+import com.aigreentick.notification.repository.DeadDeviceTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tracks device tokens that FCM reported as permanently invalid in the dead_device_tokens collection.
+ * Every push looks its tokens up by _id in batches, so no node keeps the whole set in memory, and marked tokens
+ * expire after notification.push.dead-token-retention-days, so the collection stays bounded as well.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeviceTokenHealthService {
+
+    private static final String UNREGISTERED = "UNREGISTERED";
+    private static final String SENDER_ID_MISMATCH = "SENDER_ID_MISMATCH";
+    private static final String INVALID_ARGUMENT = "INVALID_ARGUMENT";
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final DeadDeviceTokenRepository deadDeviceTokenRepository;
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Return the given tokens that are known to be dead.
+     * If the lookup fails, the tokens it has not checked yet are treated as live and FCM rejects them again.
+     */
+    public Set<String> findDead(List<String> deviceIds) {
+        Set<String> dead = new HashSet<>();
+        try {
+            for (int from = 0; from < deviceIds.size(); from += LOOKUP_BATCH_SIZE) {
+                List<String> batch = deviceIds.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, deviceIds.size()));
+                Query query = new Query(Criteria.where("_id").in(batch));
+                query.fields().include("_id");
+                for (DeadDeviceToken token : mongoTemplate.find(query, DeadDeviceToken.class)) {
+                    dead.add(token.getToken());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to look up dead device tokens, sending to the unchecked ones: {}", e.getMessage());
+        }
+        return dead;
+    }
+
+    /**
+     * Record tokens from a send that FCM rejected as unregistered or invalid.
+     * INVALID_ARGUMENT is only trusted when another token in the same send succeeded,
+     * since a malformed payload fails every token with the same code.
+     */
+    public void recordResults(List<DeliveryResult> results) {
+        boolean anySuccess = false;
+        for (DeliveryResult result : results) {
+            if (result.isSuccess()) {
+                anySuccess = true;
+                break;
+            }
+        }
+
+        List<DeliveryResult> dead = new ArrayList<>();
+        for (DeliveryResult result : results) {
+            String code = result.getErrorCode();
+            if (result.isSuccess() || code == null) {
+                continue;
+            }
+            if (UNREGISTERED.equals(code) || SENDER_ID_MISMATCH.equals(code) || (anySuccess && INVALID_ARGUMENT.equals(code))) {
+                dead.add(result);
+            }
+        }
+        if (dead.isEmpty()) {
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DeadDeviceToken.class);
+            for (DeliveryResult result : dead) {
+                bulk.upsert(new Query(Criteria.where("_id").is(result.getRecipient())),
+                        new Update().set("errorCode", result.getErrorCode()).set("markedAt", now));
+            }
+            bulk.execute();
+            log.info("Marked {} device tokens as dead", dead.size());
+        } catch (Exception e) {
+            log.error("Failed to persist {} dead device tokens: {}", dead.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Forget a token, e.g. after it is registered again
+     */
+    public void markAlive(String deviceId) {
+        deadDeviceTokenRepository.deleteById(deviceId);
+    }
+}
@@ -3,6 +3,7 @@ package com.aigreentick.notification.service;
 import com.aigreentick.notification.dto.EmailTemplateRequest;
 import com.aigreentick.notification.dto.EmailTemplateResponse;
 import com.aigreentick.notification.dto.EmailTemplateUpdateRequest;
+import com.aigreentick.notification.dto.TemplateStatistics;
 import com.aigreentick.notification.entity.EmailTemplate;
 import com.aigreentick.notification.exception.EmailTemplateNotFoundException;
 import com.aigreentick.notification.exception.EmailTemplateAlreadyExistsException;
@@ -24,6 +25,9 @@ import java.util.stream.Collectors;
 public class EmailTemplateService {
 
     private final EmailTemplateRepository emailTemplateRepository;
+    private final CompiledTemplateCache compiledTemplateCache;
+    private final ActiveTemplateCache<EmailTemplate> emailTemplateCache;
+    private final TemplateStatisticsCache<EmailTemplate> emailTemplateStatistics;
 
     /**
      * Create a new email template
@@ -36,6 +40,9 @@ public class EmailTemplateService {
             throw new EmailTemplateAlreadyExistsException("Email template with name '" + request.getName() + "' already exists");
         }
 
+        // Reject malformed placeholders before anything is stored
+        CompiledTemplateCache.Compiled compiled = compiledTemplateCache.compile(request.getTitle(), request.getBody());
+
         EmailTemplate template = new EmailTemplate(
             request.getName(),
             request.getTitle(),
@@ -46,6 +53,9 @@ public class EmailTemplateService {
         template.setModifiedBy(request.getModifiedBy());
 
         EmailTemplate savedTemplate = emailTemplateRepository.save(template);
+        compiledTemplateCache.putEmail(savedTemplate, compiled);
+        emailTemplateCache.update(savedTemplate);
+        emailTemplateStatistics.added(savedTemplate);
         log.info("Successfully created email template with ID: {}", savedTemplate.getId());
         
         return new EmailTemplateResponse(savedTemplate);
@@ -85,16 +95,32 @@ public class EmailTemplateService {
     }
 
     /**
-     * Get email template by name
+     * Get email template by name; active templates are served from the in-memory cache
      */
     @Transactional(readOnly = true)
     public EmailTemplateResponse getTemplateByName(String name) {
-        log.info("Fetching email template with name: {}", name);
-        EmailTemplate template = emailTemplateRepository.findByNameIgnoreCase(name)
+        log.debug("Fetching email template with name: {}", name);
+        EmailTemplate template = emailTemplateCache.get(name)
                 .orElseThrow(() -> new EmailTemplateNotFoundException("Email template with name '" + name + "' not found"));
         return new EmailTemplateResponse(template);
     }
 
+    /**
+     * Resolve the template to send by ID, or by name when no ID is given; inactive templates are rejected
+     */
+    @Transactional(readOnly = true)
+    public EmailTemplate getActiveTemplate(String id, String name) {
+        EmailTemplate template = id != null && !id.isBlank()
+                ? emailTemplateRepository.findById(id)
+                        .orElseThrow(() -> new EmailTemplateNotFoundException("Email template with ID " + id + " not found"))
+                : emailTemplateCache.get(name)
+                        .orElseThrow(() -> new EmailTemplateNotFoundException("Email template with name '" + name + "' not found"));
+        if (!Boolean.TRUE.equals(template.getIsActive())) {
+            throw new IllegalArgumentException("Email template '" + template.getName() + "' is not active");
+        }
+        return template;
+    }
+
     /**
      * Get all active email templates
      */
@@ -151,6 +177,7 @@ public class EmailTemplateService {
         
         EmailTemplate template = emailTemplateRepository.findById(id)
                 .orElseThrow(() -> new EmailTemplateNotFoundException("Email template with ID " + id + " not found"));
+        TemplateStatisticsCache.Facts before = emailTemplateStatistics.factsOf(template);
 
         // Check if new name conflicts with existing template (excluding current template)
         if (!template.getName().equalsIgnoreCase(request.getName()) && 
@@ -158,6 +185,8 @@ public class EmailTemplateService {
             throw new EmailTemplateAlreadyExistsException("Email template with name '" + request.getName() + "' already exists");
         }
 
+        CompiledTemplateCache.Compiled compiled = compiledTemplateCache.compile(request.getTitle(), request.getBody());
+
         template.setName(request.getName());
         template.setTitle(request.getTitle());
         template.setBody(request.getBody());
@@ -168,6 +197,9 @@ public class EmailTemplateService {
         }
 
         EmailTemplate updatedTemplate = emailTemplateRepository.save(template);
+        compiledTemplateCache.putEmail(updatedTemplate, compiled);
+        emailTemplateCache.update(updatedTemplate);
+        emailTemplateStatistics.changed(before, updatedTemplate);
         log.info("Successfully updated email template with ID: {}", updatedTemplate.getId());
         
         return new EmailTemplateResponse(updatedTemplate);
@@ -181,11 +213,14 @@ public class EmailTemplateService {
         
         EmailTemplate template = emailTemplateRepository.findById(id)
                 .orElseThrow(() -> new EmailTemplateNotFoundException("Email template with ID " + id + " not found"));
+        TemplateStatisticsCache.Facts before = emailTemplateStatistics.factsOf(template);
         
         template.setIsActive(true);
         template.setModifiedBy(modifiedBy);
         
         EmailTemplate updatedTemplate = emailTemplateRepository.save(template);
+        emailTemplateCache.update(updatedTemplate);
+        emailTemplateStatistics.changed(before, updatedTemplate);
         log.info("Successfully activated email template with ID: {}", updatedTemplate.getId());
         
         return new EmailTemplateResponse(updatedTemplate);
@@ -199,11 +234,14 @@ public class EmailTemplateService {
         
         EmailTemplate template = emailTemplateRepository.findById(id)
                 .orElseThrow(() -> new EmailTemplateNotFoundException("Email template with ID " + id + " not found"));
+        TemplateStatisticsCache.Facts before = emailTemplateStatistics.factsOf(template);
         
         template.setIsActive(false);
         template.setModifiedBy(modifiedBy);
         
         EmailTemplate updatedTemplate = emailTemplateRepository.save(template);
+        emailTemplateCache.update(updatedTemplate);
+        emailTemplateStatistics.changed(before, updatedTemplate);
         log.info("Successfully deactivated email template with ID: {}", updatedTemplate.getId());
         
         return new EmailTemplateResponse(updatedTemplate);
@@ -215,44 +253,22 @@ public class EmailTemplateService {
     public void deleteTemplate(String id) {
         log.info("Deleting email template with ID: {}", id);
         
-        if (!emailTemplateRepository.existsById(id)) {
-            throw new EmailTemplateNotFoundException("Email template with ID " + id + " not found");
-        }
+        EmailTemplate template = emailTemplateRepository.findById(id)
+                .orElseThrow(() -> new EmailTemplateNotFoundException("Email template with ID " + id + " not found"));
         
         emailTemplateRepository.deleteById(id);
+        emailTemplateStatistics.removed(template);
+        compiledTemplateCache.evictEmail(id);
+        emailTemplateCache.remove(id);
         log.info("Successfully deleted email template with ID: {}", id);
     }
 
     /**
-     * Get template statistics
+     * Get template statistics, counted in one aggregation and cached briefly
      */
     @Transactional(readOnly = true)
     public TemplateStatistics getTemplateStatistics() {
         log.info("Fetching email template statistics");
-        
-        long totalTemplates = emailTemplateRepository.count();
-        long activeTemplates = emailTemplateRepository.countByIsActiveTrue();
-        long inactiveTemplates = emailTemplateRepository.countByIsActiveFalse();
-        
-        return new TemplateStatistics(totalTemplates, activeTemplates, inactiveTemplates);
-    }
-
-    /**
-     * Inner class for template statistics
-     */
-    public static class TemplateStatistics {
-        private final long totalTemplates;
-        private final long activeTemplates;
-        private final long inactiveTemplates;
-
-        public TemplateStatistics(long totalTemplates, long activeTemplates, long inactiveTemplates) {
-            this.totalTemplates = totalTemplates;
-            this.activeTemplates = activeTemplates;
-            this.inactiveTemplates = inactiveTemplates;
-        }
-
-        public long getTotalTemplates() { return totalTemplates; }
-        public long getActiveTemplates() { return activeTemplates; }
-        public long getInactiveTemplates() { return inactiveTemplates; }
+        return emailTemplateStatistics.get();
     }
 }
@@ -0,0 +1,162 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryResult;
+import com.aigreentick.notification.exception.RateLimitExceededException;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Sends one notification to many device tokens using FCM multicast batches.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FcmBatchSender {
+
+    /**
+     * FCM rejects multicast messages with more than 500 tokens
+     */
+    public static final int MAX_TOKENS_PER_MULTICAST = 500;
+
+    private final FirebaseMessaging firebaseMessaging;
+    private final RateLimiterRegistry rateLimiterRegistry;
+
+    @Value("${firebase.multicast.batch-size:500}")
+    private int batchSize;
+
+    @Value("${firebase.multicast.max-concurrent-batches:4}")
+    private int maxConcurrentBatches;
+
+    /**
+     * Send the notification to every device and return one result per device, in input order.
+     * Tokens are split into chunks of at most 500 and up to maxConcurrentBatches chunks are in flight at once.
+     */
+    public List<DeliveryResult> send(List<String> deviceIds, String title, String description, String imageUrl) {
+        int chunkSize = Math.max(1, Math.min(batchSize, MAX_TOKENS_PER_MULTICAST));
+        int window = Math.max(1, maxConcurrentBatches);
+
+        TokenBucket rateLimiter = rateLimiterRegistry.push();
+        List<DeliveryResult> results = new ArrayList<>(deviceIds.size());
+        Deque<PendingBatch> inFlight = new ArrayDeque<>();
+
+        for (int from = 0; from < deviceIds.size(); from += chunkSize) {
+            if (inFlight.size() >= window) {
+                collect(inFlight.poll(), results);
+            }
+            List<String> chunk = deviceIds.subList(from, Math.min(from + chunkSize, deviceIds.size()));
+            inFlight.add(new PendingBatch(chunk, dispatch(rateLimiter, chunk, title, description, imageUrl)));
+        }
+        while (!inFlight.isEmpty()) {
+            collect(inFlight.poll(), results);
+        }
+
+        log.debug("Multicast push finished for {} devices in {} batches", deviceIds.size(),
+                (deviceIds.size() + chunkSize - 1) / chunkSize);
+        return results;
+    }
+
+    /**
+     * Wait for rate limit permits for every token in the chunk, then start the multicast.
+     * A rejected chunk becomes a failed future so its results stay in input order.
+     */
+    private ApiFuture<BatchResponse> dispatch(TokenBucket rateLimiter, List<String> chunk,
+                                              String title, String description, String imageUrl) {
+        try {
+            rateLimiter.acquire(chunk.size());
+        } catch (RateLimitExceededException e) {
+            return ApiFutures.immediateFailedFuture(e);
+        }
+        return firebaseMessaging.sendEachForMulticastAsync(buildMessage(chunk, title, description, imageUrl));
+    }
+
+    private MulticastMessage buildMessage(List<String> tokens, String title, String description, String imageUrl) {
+        Notification notification = Notification.builder()
+                .setTitle(title)
+                .setBody(description)
+                .setImage(imageUrl)
+                .build();
+
+        MulticastMessage.Builder builder = MulticastMessage.builder()
+                .addAllTokens(tokens)
+                .setNotification(notification)
+                .putData("title", title)
+                .putData("body", description);
+
+        if (imageUrl != null && !imageUrl.isEmpty()) {
+            builder.putData("image", imageUrl);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Wait for a batch and map each SendResponse back to the token at the same position
+     */
+    private void collect(PendingBatch batch, List<DeliveryResult> results) {
+        try {
+            List<SendResponse> responses = batch.future.get().getResponses();
+            for (int i = 0; i < batch.tokens.size(); i++) {
+                results.add(toResult(batch.tokens.get(i), responses.get(i)));
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("Multicast batch of {} devices failed: {}", batch.tokens.size(), cause.getMessage());
+            failAll(batch.tokens, cause, results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (String token : batch.tokens) {
+                results.add(DeliveryResult.failure(token, "INTERRUPTED", "Interrupted while waiting for FCM response"));
+            }
+        }
+    }
+
+    private DeliveryResult toResult(String deviceId, SendResponse response) {
+        if (response.isSuccessful()) {
+            return DeliveryResult.success(deviceId, response.getMessageId());
+        }
+        FirebaseMessagingException e = response.getException();
+        if (e == null) {
+            return DeliveryResult.failure(deviceId, null, "Unknown FCM error");
+        }
+        return toFailure(deviceId, DeliveryErrorClassifier.classifyPush(e), e.getMessage());
+    }
+
+    private void failAll(List<String> tokens, Throwable cause, List<DeliveryResult> results) {
+        DeliveryErrorClassifier.Classification classification = DeliveryErrorClassifier.classifyPush(cause);
+        for (String token : tokens) {
+            results.add(toFailure(token, classification, cause.getMessage()));
+        }
+    }
+
+    private DeliveryResult toFailure(String deviceId, DeliveryErrorClassifier.Classification classification, String message) {
+        if (classification.isRetryable()) {
+            return DeliveryResult.retryableFailure(deviceId, classification.getErrorCode(), message, classification.getRetryAfterMillis());
+        }
+        return DeliveryResult.failure(deviceId, classification.getErrorCode(), message);
+    }
+
+    private static final class PendingBatch {
+        private final List<String> tokens;
+        private final ApiFuture<BatchResponse> future;
+
+        private PendingBatch(List<String> tokens, ApiFuture<BatchResponse> future) {
+            this.tokens = tokens;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.NotificationResponse;
+import com.aigreentick.notification.entity.IdempotencyRecord;
+import com.aigreentick.notification.exception.IdempotencyKeyConflictException;
+import com.aigreentick.notification.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates sends that carry an Idempotency-Key header.
+ *
+ * <p>Keys are first checked in a bounded in-memory cache, which also lets a concurrent retry on the same node
+ * wait for the original send instead of starting a second one. The idempotency_keys collection is the fallback
+ * for retries that land on another node or arrive after the local entry was evicted.
+ * Only definitive outcomes are stored: a send that throws or reports failure releases its key so the client can
+ * try again.
+ *
+ * <p>A stored IN_PROGRESS record is leased to the request running the send, which renews the lease every third of
+ * lease-ms. If that node crashes the lease lapses, and the next request with the key takes the record over in a
+ * single conditional findAndModify, so two retries cannot both win it.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final int cacheSize;
+    private final long ttlMs;
+    private final long inFlightWaitMs;
+    private final long leaseMs;
+
+    private final Map<String, Entry> cache;
+    /**
+     * Owner of every stored IN_PROGRESS record this node is running the send for
+     */
+    private final Map<String, String> leases = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService leaseRenewer;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              MongoTemplate mongoTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${notification.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${notification.idempotency.ttl-ms:86400000}") long ttlMs,
+                              @Value("${notification.idempotency.in-flight-wait-ms:30000}") long inFlightWaitMs,
+                              @Value("${notification.idempotency.lease-ms:60000}") long leaseMs) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.cacheSize = cacheSize;
+        this.ttlMs = ttlMs;
+        this.inFlightWaitMs = inFlightWaitMs;
+        this.leaseMs = Math.max(3, leaseMs);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyService.this.cacheSize;
+            }
+        };
+        this.leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "idempotency-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewIntervalMs = this.leaseMs / 3;
+        leaseRenewer.scheduleWithFixedDelay(this::renewLeases, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        leaseRenewer.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(IdempotencyRecord.class)
+                .ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(0, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Result of an idempotent call and whether it was replayed from an earlier send
+     */
+    public static final class Result<T> {
+        private final T value;
+        private final boolean replayed;
+
+        private Result(T value, boolean replayed) {
+            this.value = value;
+            this.replayed = replayed;
+        }
+
+        public T getValue() { return value; }
+        public boolean isReplayed() { return replayed; }
+    }
+
+    /**
+     * Run the send once per scope and key. Without a key the send always runs.
+     *
+     * @param scope   endpoint the key belongs to, so the same key may be used on different endpoints
+     * @param request request body; a key reused with a different body is rejected
+     */
+    public <T> Result<T> execute(String scope, String key, Object request, Class<T> type, Supplier<T> send) {
+        if (key == null || key.isBlank()) {
+            return new Result<>(send.get(), false);
+        }
+        String id = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Entry entry = new Entry(fingerprint, UUID.randomUUID().toString(), System.currentTimeMillis() + ttlMs);
+        Entry existing;
+        synchronized (cache) {
+            existing = cache.get(id);
+            if (existing == null || existing.isExpired()) {
+                cache.put(id, entry);
+                existing = null;
+            }
+        }
+        if (existing != null) {
+            return new Result<>(type.cast(await(id, existing, fingerprint)), true);
+        }
+
+        Optional<IdempotencyRecord> stored = claim(id, entry);
+        if (stored.isPresent()) {
+            IdempotencyRecord record = stored.get();
+            if (!record.getFingerprint().equals(fingerprint)) {
+                release(id, entry, false);
+                throw new IdempotencyKeyConflictException("Idempotency-Key " + key + " was already used for a different request");
+            }
+            if (record.getStatus() != IdempotencyRecord.Status.COMPLETED) {
+                release(id, entry, false);
+                throw new IdempotencyKeyConflictException("A request with Idempotency-Key " + key + " is still in progress");
+            }
+            T value = objectMapper.convertValue(record.getResponse(), type);
+            entry.future.complete(value);
+            return new Result<>(value, true);
+        }
+
+        T value;
+        try {
+            value = send.get();
+        } catch (RuntimeException e) {
+            release(id, entry, true);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        if (value instanceof NotificationResponse response && !response.isSuccess()) {
+            // A failed send, e.g. no SMTP connection, is not replayed; retries that were waiting for it get it too
+            release(id, entry, true);
+            entry.future.complete(value);
+            return new Result<>(value, false);
+        }
+        entry.future.complete(value);
+        complete(id, entry, value);
+        return new Result<>(value, false);
+    }
+
+    /**
+     * Claim the key for a streamed send. A stream cannot be replayed, so the key is rejected while a send with it
+     * is in progress and after it completed. Without a key the returned claim runs the send unchecked.
+     */
+    public StreamClaim claimStream(String scope, String key, Object request) {
+        if (key == null || key.isBlank()) {
+            return new StreamClaim(null, null);
+        }
+        String id = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Entry entry = new Entry(fingerprint, UUID.randomUUID().toString(), System.currentTimeMillis() + ttlMs);
+        Entry existing;
+        synchronized (cache) {
+            existing = cache.get(id);
+            if (existing == null || existing.isExpired()) {
+                cache.put(id, entry);
+                existing = null;
+            }
+        }
+        if (existing != null) {
+            throw streamConflict(key, existing.fingerprint.equals(fingerprint), existing.future.isDone());
+        }
+        Optional<IdempotencyRecord> stored = claim(id, entry);
+        if (stored.isPresent()) {
+            release(id, entry, false);
+            IdempotencyRecord record = stored.get();
+            throw streamConflict(key, record.getFingerprint().equals(fingerprint),
+                    record.getStatus() == IdempotencyRecord.Status.COMPLETED);
+        }
+        return new StreamClaim(id, entry);
+    }
+
+    private static IdempotencyKeyConflictException streamConflict(String key, boolean sameRequest, boolean completed) {
+        if (!sameRequest) {
+            return new IdempotencyKeyConflictException("Idempotency-Key " + key + " was already used for a different request");
+        }
+        return new IdempotencyKeyConflictException(completed
+                ? "A streamed request with Idempotency-Key " + key + " already completed and cannot be replayed"
+                : "A request with Idempotency-Key " + key + " is still in progress");
+    }
+
+    /**
+     * Key held by a streamed send; the key is completed when the send returns and released when it throws
+     */
+    public final class StreamClaim {
+        private final String id;
+        private final Entry entry;
+
+        private StreamClaim(String id, Entry entry) {
+            this.id = id;
+            this.entry = entry;
+        }
+
+        public <T> T run(Supplier<T> send) {
+            if (id == null) {
+                return send.get();
+            }
+            T value;
+            try {
+                value = send.get();
+            } catch (RuntimeException e) {
+                release(id, entry, true);
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+            entry.future.complete(null);
+            // Only the outcome is stored; a repeated key is rejected rather than replayed
+            complete(id, entry, null);
+            return value;
+        }
+    }
+
+    /**
+     * Wait for a send that is running or finished on this node
+     */
+    private Object await(String id, Entry entry, String fingerprint) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new IdempotencyKeyConflictException("Idempotency-Key " + keyOf(id) + " was already used for a different request");
+        }
+        try {
+            return entry.future.get(inFlightWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyConflictException("A request with Idempotency-Key " + keyOf(id) + " is still in progress");
+        } catch (ExecutionException e) {
+            // The original send failed and released the key; this retry has to be resent by the client
+            throw new IdempotencyKeyConflictException("The original request with Idempotency-Key " + keyOf(id) + " failed, retry it", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyConflictException("Interrupted while waiting for Idempotency-Key " + keyOf(id));
+        }
+    }
+
+    /**
+     * Insert an IN_PROGRESS record, take over one that expired or whose lease lapsed, or return the record
+     * another request holds for this key. If Mongo is unavailable the in-memory cache alone provides deduplication.
+     */
+    private Optional<IdempotencyRecord> claim(String id, Entry entry) {
+        Date now = new Date();
+        try {
+            idempotencyRecordRepository.insert(inProgress(id, entry, now));
+            leases.put(id, entry.owner);
+            return Optional.empty();
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord record = inProgress(id, entry, now);
+            // Expired but not yet removed by the TTL monitor, or left behind by a node that stopped renewing it
+            Query abandoned = new Query(Criteria.where("_id").is(id).orOperator(
+                    Criteria.where("expiresAt").lt(now),
+                    Criteria.where("status").is(IdempotencyRecord.Status.IN_PROGRESS).and("lockedUntil").lt(now)));
+            IdempotencyRecord previous = mongoTemplate.findAndModify(abandoned, new Update()
+                            .set("fingerprint", record.getFingerprint())
+                            .set("status", record.getStatus())
+                            .set("response", null)
+                            .set("owner", record.getOwner())
+                            .set("lockedUntil", record.getLockedUntil())
+                            .set("createdAt", record.getCreatedAt())
+                            .set("expiresAt", record.getExpiresAt()),
+                    FindAndModifyOptions.options().returnNew(false), IdempotencyRecord.class);
+            if (previous != null) {
+                log.info("Took over idempotency key {} from an abandoned request", id);
+                leases.put(id, entry.owner);
+                return Optional.empty();
+            }
+            Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(id);
+            if (stored.isEmpty()) {
+                // Released between the insert and the lookup; reported as in progress so the client retries
+                return Optional.of(inProgress(id, entry, now));
+            }
+            return stored;
+        } catch (Exception e) {
+            log.warn("Idempotency store unavailable, deduplicating {} in memory only: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private IdempotencyRecord inProgress(String id, Entry entry, Date now) {
+        return new IdempotencyRecord(id, entry.fingerprint, IdempotencyRecord.Status.IN_PROGRESS, null, entry.owner,
+                new Date(now.getTime() + leaseMs), now, new Date(now.getTime() + ttlMs));
+    }
+
+    /**
+     * Store the result, unless the record was taken over after this node lost its lease
+     */
+    private void complete(String id, Entry entry, Object value) {
+        leases.remove(id, entry.owner);
+        Date now = new Date();
+        try {
+            long updated = mongoTemplate.updateFirst(ownedBy(id, entry), new Update()
+                            .set("status", IdempotencyRecord.Status.COMPLETED)
+                            .set("response", value)
+                            .unset("owner")
+                            .unset("lockedUntil")
+                            .set("expiresAt", new Date(now.getTime() + ttlMs)),
+                    IdempotencyRecord.class).getMatchedCount();
+            if (updated == 0) {
+                log.warn("Idempotency key {} was taken over before its result was stored", id);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to store result for idempotency key {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void release(String id, Entry entry, boolean deleteStored) {
+        synchronized (cache) {
+            cache.remove(id, entry);
+        }
+        if (deleteStored) {
+            leases.remove(id, entry.owner);
+            try {
+                mongoTemplate.remove(ownedBy(id, entry), IdempotencyRecord.class);
+            } catch (Exception e) {
+                // The lease lapses on its own and a retry takes the record over
+                log.warn("Failed to release idempotency key {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    private static Query ownedBy(String id, Entry entry) {
+        return new Query(Criteria.where("_id").is(id).and("owner").is(entry.owner));
+    }
+
+    /**
+     * Extend the lease of every record whose send is still running on this node
+     */
+    private void renewLeases() {
+        if (leases.isEmpty()) {
+            return;
+        }
+        try {
+            Date lockedUntil = new Date(System.currentTimeMillis() + leaseMs);
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, IdempotencyRecord.class);
+            leases.forEach((id, owner) -> bulk.updateOne(
+                    new Query(Criteria.where("_id").is(id).and("owner").is(owner)
+                            .and("status").is(IdempotencyRecord.Status.IN_PROGRESS)),
+                    new Update().set("lockedUntil", lockedUntil)));
+            bulk.execute();
+        } catch (Exception e) {
+            log.warn("Failed to renew {} idempotency leases: {}", leases.size(), e.getMessage());
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    private static String keyOf(String id) {
+        return id.substring(id.indexOf(':') + 1);
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final String owner;
+        private final long expiresAt;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private Entry(String fingerprint, String owner, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.owner = owner;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.entity.NotificationContent;
+import com.aigreentick.notification.repository.NotificationContentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Stores the content of logged notifications once per distinct content, keyed by its hash,
+ * and loads it back for the log entries that reference it.
+ *
+ * <p>A send loop logs the same title and body for every recipient, so the last content seen on each thread is
+ * remembered by reference and not hashed again until the refresh interval below has passed. Content is written
+ * through the {@link NotificationLogWriter}; a bounded set of recently written hashes keeps repeated content from
+ * being queued more than once.
+ *
+ * <p>Content expires through a TTL index on lastUsedAt one and a half log retentions after it was last used.
+ * Reused content is written again at most once per half retention, which moves lastUsedAt forward when it is
+ * already stored, so content always outlives the log entries that reference it.
+ */
+@Service
+public class NotificationContentService {
+
+    private static final byte EMAIL = 'E';
+    private static final byte PUSH = 'P';
+
+    private final NotificationContentRepository notificationContentRepository;
+    private final NotificationLogWriter notificationLogWriter;
+    private final long refreshIntervalMs;
+    private final Map<String, Long> recentlyWritten;
+    private final ThreadLocal<LastContent> lastContent = new ThreadLocal<>();
+
+    public NotificationContentService(NotificationContentRepository notificationContentRepository,
+                                      NotificationLogWriter notificationLogWriter,
+                                      @Value("${notification.log.content-cache-size:10000}") int cacheSize,
+                                      @Value("${notification.log.retention-days:90}") long retentionDays) {
+        this.notificationContentRepository = notificationContentRepository;
+        this.notificationLogWriter = notificationLogWriter;
+        // Without a retention content never expires, so it is written once and never refreshed
+        this.refreshIntervalMs = retentionDays > 0 ? TimeUnit.DAYS.toMillis(retentionDays) / 2 : Long.MAX_VALUE;
+        this.recentlyWritten = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Store email content if it is new and return its id
+     */
+    public String storeEmailContent(String title, String body, List<String> cc) {
+        LastContent last = lastContent.get();
+        if (last != null && last.matches(EMAIL, title, body, cc) && !isRefreshDue(last)) {
+            return last.id;
+        }
+        String id = hash(EMAIL, title, body, cc);
+        LocalDateTime now = LocalDateTime.now();
+        write(new NotificationContent(id, title, body, cc, null, null, now, now));
+        lastContent.set(new LastContent(EMAIL, title, body, cc, id, System.currentTimeMillis()));
+        return id;
+    }
+
+    /**
+     * Store push content if it is new and return its id
+     */
+    public String storePushContent(String title, String description, String imageUrl) {
+        LastContent last = lastContent.get();
+        if (last != null && last.matches(PUSH, title, description, imageUrl) && !isRefreshDue(last)) {
+            return last.id;
+        }
+        String id = hash(PUSH, title, description, imageUrl);
+        LocalDateTime now = LocalDateTime.now();
+        write(new NotificationContent(id, title, null, null, description, imageUrl, now, now));
+        lastContent.set(new LastContent(PUSH, title, description, imageUrl, id, System.currentTimeMillis()));
+        return id;
+    }
+
+    /**
+     * Content referenced by the given entries, keyed by content id
+     */
+    public <T> Map<String, NotificationContent> load(List<T> entries, Function<T, String> contentIdOf) {
+        Set<String> ids = entries.stream().map(contentIdOf).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, NotificationContent> contents = new HashMap<>();
+        notificationContentRepository.findAllById(ids).forEach(content -> contents.put(content.getId(), content));
+        return contents;
+    }
+
+    /**
+     * Whether a thread that keeps reusing the same content has to pass it to write() again to refresh its lastUsedAt
+     */
+    private boolean isRefreshDue(LastContent last) {
+        return System.currentTimeMillis() - last.checkedAt >= refreshIntervalMs;
+    }
+
+    private void write(NotificationContent content) {
+        long now = System.currentTimeMillis();
+        synchronized (recentlyWritten) {
+            Long writtenAt = recentlyWritten.get(content.getId());
+            if (writtenAt != null && now - writtenAt < refreshIntervalMs) {
+                return;
+            }
+            recentlyWritten.put(content.getId(), now);
+        }
+        // Content already stored by another node or before a restart is rejected as a duplicate,
+        // and the writer moves its lastUsedAt forward instead
+        notificationLogWriter.write(content);
+    }
+
+    private static String hash(byte channel, String title, String body, List<String> cc) {
+        MessageDigest digest = sha256(channel);
+        update(digest, title);
+        update(digest, body);
+        if (cc == null) {
+            updateLength(digest, -1);
+        } else {
+            // Entry count, then each entry length-prefixed, so ["a,b"] and ["a", "b"] hash differently
+            updateLength(digest, cc.size());
+            cc.forEach(entry -> update(digest, entry));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String hash(byte channel, String... fields) {
+        MessageDigest digest = sha256(channel);
+        for (String field : fields) {
+            update(digest, field);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256(byte channel) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(channel);
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Length-prefixed field, so that moving text from one field to the next changes the hash
+     */
+    private static void update(MessageDigest digest, String field) {
+        if (field == null) {
+            updateLength(digest, -1);
+            return;
+        }
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        updateLength(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateLength(MessageDigest digest, int length) {
+        digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+    }
+
+    /**
+     * checkedAt is when this thread last passed the content to write()
+     */
+    private record LastContent(byte channel, String first, String second, Object third, String id, long checkedAt) {
+        private boolean matches(byte channel, String first, String second, Object third) {
+            return this.channel == channel && this.first == first && this.second == second && this.third == third;
+        }
+    }
+}
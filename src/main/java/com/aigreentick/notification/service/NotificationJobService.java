@@ -0,0 +1,137 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.EmailNotificationRequest;
+import com.aigreentick.notification.dto.NotificationJobResponse;
+import com.aigreentick.notification.dto.PushNotificationRequest;
+import com.aigreentick.notification.entity.NotificationJob;
+import com.aigreentick.notification.exception.NotificationJobNotFoundException;
+import com.aigreentick.notification.repository.NotificationJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persists asynchronous send requests to the notification_jobs queue and reports their progress
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationJobService {
+
+    private final NotificationJobRepository notificationJobRepository;
+    private final NotificationJobWorker notificationJobWorker;
+
+    @Value("${notification.queue.events-poll-interval-ms:1000}")
+    private long eventsPollIntervalMs;
+
+    private final ScheduledExecutorService eventPoller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "notification-job-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Queue an email notification
+     */
+    public NotificationJob enqueueEmail(EmailNotificationRequest request) {
+        return enqueue(new NotificationJob(NotificationJob.Type.EMAIL, request, null, null));
+    }
+
+    /**
+     * Queue a push notification to devices
+     */
+    public NotificationJob enqueuePush(PushNotificationRequest request) {
+        return enqueue(new NotificationJob(NotificationJob.Type.PUSH, null, request, null));
+    }
+
+    /**
+     * Queue a push notification to a topic
+     */
+    public NotificationJob enqueuePushToTopic(String topic, String title, String description, String imageUrl) {
+        PushNotificationRequest request = new PushNotificationRequest(null, title, description, imageUrl);
+        return enqueue(new NotificationJob(NotificationJob.Type.PUSH_TOPIC, null, request, topic));
+    }
+
+    /**
+     * Queue both email and push notifications
+     */
+    public NotificationJob enqueueBoth(EmailNotificationRequest emailRequest, PushNotificationRequest pushRequest) {
+        return enqueue(new NotificationJob(NotificationJob.Type.BOTH, emailRequest, pushRequest, null));
+    }
+
+    /**
+     * Get the current status and progress counters of a job
+     */
+    public NotificationJobResponse getJob(String id) {
+        return new NotificationJobResponse(findJob(id));
+    }
+
+    /**
+     * Stream job progress as Server-Sent Events.
+     * A "progress" event is emitted whenever the job document changes; the stream completes once the job finishes.
+     */
+    public SseEmitter streamJob(String id, long timeoutMs) {
+        NotificationJob initial = findJob(id);
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        AtomicReference<LocalDateTime> lastSeen = new AtomicReference<>(LocalDateTime.MIN);
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+
+        Runnable poll = () -> {
+            try {
+                NotificationJob job = notificationJobRepository.findById(id).orElse(initial);
+                if (!Objects.equals(lastSeen.get(), job.getUpdatedAt())) {
+                    lastSeen.set(job.getUpdatedAt());
+                    emitter.send(SseEmitter.event().name("progress").id(String.valueOf(job.getUpdatedAt())).data(new NotificationJobResponse(job)));
+                }
+                if (job.isFinished()) {
+                    emitter.complete();
+                    cancel(task.get());
+                }
+            } catch (Exception e) {
+                log.debug("Stopping progress stream for notification job {}: {}", id, e.getMessage());
+                emitter.completeWithError(e);
+                cancel(task.get());
+            }
+        };
+
+        emitter.onCompletion(() -> cancel(task.get()));
+        emitter.onTimeout(() -> cancel(task.get()));
+        emitter.onError(e -> cancel(task.get()));
+        task.set(eventPoller.scheduleWithFixedDelay(poll, 0, eventsPollIntervalMs, TimeUnit.MILLISECONDS));
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        eventPoller.shutdownNow();
+    }
+
+    private NotificationJob findJob(String id) {
+        return notificationJobRepository.findById(id)
+                .orElseThrow(() -> new NotificationJobNotFoundException("Notification job with ID " + id + " not found"));
+    }
+
+    private static void cancel(ScheduledFuture<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private NotificationJob enqueue(NotificationJob job) {
+        NotificationJob saved = notificationJobRepository.save(job);
+        log.info("Queued notification job {} of type {}", saved.getId(), saved.getType());
+        notificationJobWorker.wakeUp();
+        return saved;
+    }
+}
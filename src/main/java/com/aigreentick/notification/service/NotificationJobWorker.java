@@ -0,0 +1,563 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryResult;
+import com.aigreentick.notification.dto.EmailNotificationRequest;
+import com.aigreentick.notification.dto.NotificationResponse;
+import com.aigreentick.notification.dto.PushNotificationRequest;
+import com.aigreentick.notification.entity.NotificationJob;
+import com.aigreentick.notification.entity.NotificationJobProgress;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker pool that drains the notification_jobs collection.
+ * Jobs are claimed with an atomic findAndModify that sets a lease; a job whose lease expires
+ * (because its worker crashed or the node was redeployed) becomes claimable again.
+ *
+ * <p>Each recipient's outcome is counted on the job and recorded, by its position in the request's recipient list, in
+ * notification_job_progress; a re-claimed job only sends to recipients without a recorded outcome. Recipients reached
+ * after the last stored progress update before a crash are sent again, so delivery is at-least-once. A send that
+ * fails as a whole is re-queued until max-attempts is reached.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationJobWorker {
+
+    /**
+     * Recipient positions per notification_job_progress document, which keeps each document far below the BSON limit
+     */
+    static final int POSITIONS_PER_SLICE = 10_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationService notificationService;
+
+    @Value("${notification.queue.workers:4}")
+    private int workerCount;
+
+    @Value("${notification.queue.visibility-timeout-ms:300000}")
+    private long visibilityTimeoutMs;
+
+    @Value("${notification.queue.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${notification.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${notification.queue.retry-delay-ms:30000}")
+    private long retryDelayMs;
+
+    @Value("${notification.queue.progress-batch-size:100}")
+    private int progressBatchSize;
+
+    @Value("${notification.queue.progress-interval-ms:1000}")
+    private long progressIntervalMs;
+
+    private final String workerId = resolveWorkerId();
+    private final Object signal = new Object();
+    private volatile boolean running;
+    private ExecutorService workers;
+    private ScheduledExecutorService leaseKeeper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        mongoTemplate.indexOps(NotificationJob.class)
+                .ensureIndex(new Index().on("status", Sort.Direction.ASC).on("createdAt", Sort.Direction.ASC));
+        mongoTemplate.indexOps(NotificationJob.class)
+                .ensureIndex(new Index().on("status", Sort.Direction.ASC).on("leaseExpiresAt", Sort.Direction.ASC));
+        mongoTemplate.indexOps(NotificationJobProgress.class)
+                .ensureIndex(new Index().on("jobId", Sort.Direction.ASC).on("channel", Sort.Direction.ASC));
+
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "notification-job-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseKeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notification-job-lease-keeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::runLoop);
+        }
+        log.info("Started {} notification job workers with id {}", workerCount, workerId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wakeUp();
+        if (workers == null) {
+            return;
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Notification job workers did not finish in time; unfinished jobs will be re-claimed after their lease expires");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+        leaseKeeper.shutdownNow();
+    }
+
+    /**
+     * Wake idle workers so a freshly enqueued job is picked up without waiting for the next poll
+     */
+    public void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                NotificationJob job = claimNext();
+                if (job == null) {
+                    synchronized (signal) {
+                        signal.wait(pollIntervalMs);
+                    }
+                    continue;
+                }
+                process(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Notification job worker error: {}", e.getMessage(), e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * Atomically claim the oldest queued job that is due, or a running job whose lease has expired
+     */
+    private NotificationJob claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(NotificationJob.Status.QUEUED).orOperator(
+                        Criteria.where("availableAt").is(null), Criteria.where("availableAt").lte(now)),
+                Criteria.where("status").is(NotificationJob.Status.RUNNING).and("leaseExpiresAt").lt(now)
+        )).with(Sort.by(Sort.Direction.ASC, "createdAt"));
+
+        Update update = new Update()
+                .set("status", NotificationJob.Status.RUNNING)
+                .set("leaseOwner", workerId)
+                .set("leaseExpiresAt", now.plusNanos(visibilityTimeoutMs * 1_000_000))
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), NotificationJob.class);
+    }
+
+    private void process(NotificationJob job) {
+        if (job.getAttempts() > maxAttempts) {
+            log.warn("Notification job {} exceeded {} attempts, marking as failed", job.getId(), maxAttempts);
+            finish(job, NotificationJob.Status.FAILED, null, "Exceeded maximum attempts (" + maxAttempts + ")");
+            return;
+        }
+
+        log.info("Processing notification job {} of type {} (attempt {})", job.getId(), job.getType(), job.getAttempts());
+        long renewEvery = Math.max(1000, visibilityTimeoutMs / 3);
+        ScheduledFuture<?> renewal = leaseKeeper.scheduleAtFixedRate(
+                () -> renewLease(job.getId()), renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+        ProgressTracker progress = new ProgressTracker(job.getId());
+        try {
+            NotificationResponse response = null;
+            String error = null;
+            try {
+                response = execute(job, progress);
+            } catch (Exception e) {
+                log.error("Notification job {} failed: {}", job.getId(), e.getMessage(), e);
+                error = e.getMessage();
+            }
+            // Recipients in background retry still count toward the job, which finishes once they have an outcome
+            if (!progress.awaitRetries()) {
+                progress.flush();
+                log.info("Stopped waiting for retries of notification job {}; it will be re-claimed after its lease expires", job.getId());
+                return;
+            }
+            if (!progress.flush()) {
+                // Finishing now would leave outcomes uncounted; a re-claim sends only to recipients without a stored one
+                log.warn("Could not store the progress of notification job {}; it will be re-claimed after its lease expires", job.getId());
+                return;
+            }
+            if (response != null && response.isSuccess()) {
+                finish(job, NotificationJob.Status.COMPLETED, response, null);
+            } else {
+                // The send failed as a whole, e.g. no SMTP connection or FCM unavailable
+                error = error != null ? error : response.getMessage();
+                log.warn("Notification job {} failed on attempt {}: {}", job.getId(), job.getAttempts(), error);
+                finish(job, retryOrFail(job), response, error);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.flush();
+        } finally {
+            renewal.cancel(false);
+        }
+    }
+
+    private NotificationJob.Status retryOrFail(NotificationJob job) {
+        return job.getAttempts() >= maxAttempts ? NotificationJob.Status.FAILED : NotificationJob.Status.QUEUED;
+    }
+
+    /**
+     * Send to the recipients that have no outcome stored yet
+     */
+    private NotificationResponse execute(NotificationJob job, ProgressTracker progress) {
+        EmailNotificationRequest email = job.getEmailRequest();
+        if (email != null && email.getTo() != null) {
+            List<String> to = progress.emails.remaining(email.getTo());
+            if (to != email.getTo()) {
+                email = new EmailNotificationRequest(to, email.getCc(), email.getTitle(), email.getBody());
+            }
+        }
+        PushNotificationRequest push = job.getPushRequest();
+        if (push != null && push.getDeviceIds() != null) {
+            List<String> deviceIds = progress.deviceIds.remaining(push.getDeviceIds());
+            if (deviceIds != push.getDeviceIds()) {
+                push = new PushNotificationRequest(deviceIds, push.getTitle(), push.getDescription(), push.getImageUrl());
+            }
+        }
+        return switch (job.getType()) {
+            case EMAIL -> notificationService.sendEmailNotification(email, progress.emails);
+            case PUSH -> notificationService.sendPushNotification(push, progress.deviceIds);
+            case PUSH_TOPIC -> notificationService.sendPushNotificationToTopic(
+                    job.getTopic(), push.getTitle(), push.getDescription(), push.getImageUrl());
+            case BOTH -> notificationService.sendBothNotifications(email, push, progress.emails, progress.deviceIds);
+        };
+    }
+
+    private void renewLease(String jobId) {
+        try {
+            Query query = new Query(Criteria.where("_id").is(jobId).and("leaseOwner").is(workerId));
+            Update update = new Update().set("leaseExpiresAt", LocalDateTime.now().plusNanos(visibilityTimeoutMs * 1_000_000));
+            mongoTemplate.updateFirst(query, update, NotificationJob.class);
+        } catch (Exception e) {
+            log.warn("Failed to renew lease for notification job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    /**
+     * Record the outcome, but only if this worker still owns the lease.
+     * A finished job's recipient counters are recounted from its stored outcomes, which are then removed; a re-queued
+     * job keeps both. Only a topic send, which has no per-recipient outcomes, takes its counts from the response.
+     */
+    private void finish(NotificationJob job, NotificationJob.Status status, NotificationResponse response, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("status", status)
+                .set("updatedAt", now)
+                .unset("leaseOwner")
+                .unset("leaseExpiresAt");
+        if (response != null) {
+            update.set("resultMessage", response.getMessage());
+            if (job.getType() == NotificationJob.Type.PUSH_TOPIC) {
+                update.set("successCount", response.getSuccessCount())
+                        .set("failureCount", response.getFailureCount());
+            }
+        }
+        if (error != null) {
+            update.set("lastError", error);
+        }
+        boolean finished = status == NotificationJob.Status.COMPLETED || status == NotificationJob.Status.FAILED;
+        if (finished) {
+            update.set("completedAt", now);
+            if (job.getType() != NotificationJob.Type.PUSH_TOPIC) {
+                Document outcomes = countOutcomes(job.getId());
+                update.set("successCount", outcomes.getInteger("succeeded", 0))
+                        .set("failureCount", outcomes.getInteger("failed", 0));
+            }
+        } else if (status == NotificationJob.Status.QUEUED) {
+            update.set("availableAt", now.plusNanos(retryDelayMs * 1_000_000));
+        }
+
+        Query query = new Query(Criteria.where("_id").is(job.getId()).and("leaseOwner").is(workerId));
+        if (mongoTemplate.updateFirst(query, update, NotificationJob.class).getMatchedCount() == 0) {
+            log.warn("Lease for notification job {} was lost before it finished", job.getId());
+            return;
+        }
+        if (finished) {
+            mongoTemplate.remove(new Query(Criteria.where("jobId").is(job.getId())), NotificationJobProgress.class);
+        }
+    }
+
+    /**
+     * Total succeeded and failed recipients over a job's progress documents.
+     * The counters on the job can miss an increment that failed after its outcomes were stored; these cannot.
+     */
+    private Document countOutcomes(String jobId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("jobId").is(jobId)),
+                Aggregation.group()
+                        .sum(ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull("succeeded").then(List.of()))).as("succeeded")
+                        .sum(ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull("failed").then(List.of()))).as("failed"));
+        Document outcomes = mongoTemplate.aggregate(aggregation, NotificationJobProgress.class, Document.class).getUniqueMappedResult();
+        return outcomes != null ? outcomes : new Document();
+    }
+
+    /**
+     * Accumulates per-recipient outcomes and stores them every progressBatchSize deliveries or progressIntervalMs,
+     * whichever comes first: the recipients' positions go to their notification_job_progress documents, then the
+     * counters on the job are incremented. Outcomes that could not be stored are kept and written with the next flush.
+     * Outcomes arrive from the sending thread and, for recipients in background retry, from retry threads.
+     */
+    private final class ProgressTracker {
+
+        private final String jobId;
+        private final ChannelProgress emails = new ChannelProgress(NotificationJobProgress.EMAIL);
+        private final ChannelProgress deviceIds = new ChannelProgress(NotificationJobProgress.PUSH);
+        private int pendingSuccess;
+        private int pendingFailure;
+        private int recordedSinceFlush;
+        private long lastFlushAt = System.currentTimeMillis();
+
+        private ProgressTracker(String jobId) {
+            this.jobId = jobId;
+        }
+
+        /**
+         * Listener for the recipients of one channel
+         */
+        private final class ChannelProgress implements DeliveryListener {
+            private final String channel;
+            private final Map<String, Integer> positions = new HashMap<>();
+            private final Map<String, ArrayDeque<Integer>> duplicatePositions = new HashMap<>();
+            private final List<Integer> succeeded = new ArrayList<>();
+            private final List<Integer> failed = new ArrayList<>();
+            private final Set<String> retrying = new HashSet<>();
+
+            private ChannelProgress(String channel) {
+                this.channel = channel;
+            }
+
+            /**
+             * Drop the recipients with a stored outcome and index the rest by their position.
+             * Outcomes for a recipient listed more than once take its positions in list order.
+             */
+            private List<String> remaining(List<String> recipients) {
+                BitSet processed = new BitSet(recipients.size());
+                Query query = new Query(Criteria.where("jobId").is(jobId).and("channel").is(channel));
+                for (NotificationJobProgress slice : mongoTemplate.find(query, NotificationJobProgress.class)) {
+                    for (List<Integer> outcomes : List.of(nullToEmpty(slice.getSucceeded()), nullToEmpty(slice.getFailed()))) {
+                        outcomes.forEach(processed::set);
+                    }
+                }
+                List<String> remaining = new ArrayList<>(recipients.size());
+                synchronized (ProgressTracker.this) {
+                    for (int i = 0; i < recipients.size(); i++) {
+                        if (processed.get(i)) {
+                            continue;
+                        }
+                        String recipient = recipients.get(i);
+                        if (positions.putIfAbsent(recipient, i) != null) {
+                            duplicatePositions.computeIfAbsent(recipient, r -> new ArrayDeque<>()).add(i);
+                        }
+                        remaining.add(recipient);
+                    }
+                }
+                return processed.isEmpty() ? recipients : remaining;
+            }
+
+            private Integer takePosition(String recipient) {
+                Integer position = positions.remove(recipient);
+                ArrayDeque<Integer> more = duplicatePositions.get(recipient);
+                if (more != null) {
+                    positions.put(recipient, more.poll());
+                    if (more.isEmpty()) {
+                        duplicatePositions.remove(recipient);
+                    }
+                }
+                return position;
+            }
+
+            @Override
+            public void onDelivery(DeliveryResult result) {
+                record(this, result);
+            }
+
+            @Override
+            public void onRetrying(DeliveryResult result) {
+                synchronized (ProgressTracker.this) {
+                    retrying.add(result.getRecipient());
+                }
+            }
+        }
+
+        private synchronized void record(ChannelProgress channel, DeliveryResult result) {
+            channel.retrying.remove(result.getRecipient());
+            Integer position = channel.takePosition(result.getRecipient());
+            if (result.isSuccess()) {
+                pendingSuccess++;
+                if (position != null) {
+                    channel.succeeded.add(position);
+                }
+            } else {
+                pendingFailure++;
+                if (position != null) {
+                    channel.failed.add(position);
+                }
+            }
+            recordedSinceFlush++;
+            if (recordedSinceFlush >= progressBatchSize || System.currentTimeMillis() - lastFlushAt >= progressIntervalMs) {
+                flush();
+            }
+            notifyAll();
+        }
+
+        /**
+         * Wait until every recipient in background retry has an outcome
+         *
+         * @return false if the worker is stopping
+         */
+        private synchronized boolean awaitRetries() throws InterruptedException {
+            while (!emails.retrying.isEmpty() || !deviceIds.retrying.isEmpty()) {
+                if (!running) {
+                    return false;
+                }
+                if (System.currentTimeMillis() - lastFlushAt >= progressIntervalMs) {
+                    flush();
+                }
+                wait(pollIntervalMs);
+            }
+            return true;
+        }
+
+        /**
+         * @return false if some outcomes could not be stored; they are kept for the next flush
+         */
+        private synchronized boolean flush() {
+            lastFlushAt = System.currentTimeMillis();
+            recordedSinceFlush = 0;
+            try {
+                // Positions first: counters incremented without them would be counted again when the recipients are re-sent
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationJobProgress.class);
+                int slices = 0;
+                for (ChannelProgress channel : List.of(emails, deviceIds)) {
+                    slices += addSlices(bulk, channel);
+                }
+                if (slices > 0) {
+                    bulk.execute();
+                    for (ChannelProgress channel : List.of(emails, deviceIds)) {
+                        channel.succeeded.clear();
+                        channel.failed.clear();
+                    }
+                }
+                if (pendingSuccess > 0 || pendingFailure > 0) {
+                    Query query = new Query(Criteria.where("_id").is(jobId).and("leaseOwner").is(workerId));
+                    Update update = new Update()
+                            .inc("successCount", pendingSuccess)
+                            .inc("failureCount", pendingFailure)
+                            .set("updatedAt", LocalDateTime.now());
+                    mongoTemplate.updateFirst(query, update, NotificationJob.class);
+                    pendingSuccess = 0;
+                    pendingFailure = 0;
+                }
+                return true;
+            } catch (Exception e) {
+                log.warn("Failed to update progress for notification job {}, retrying with the next update: {}", jobId, e.getMessage());
+                return false;
+            }
+        }
+
+        /**
+         * Queue one upsert per progress document touched by the channel's pending outcomes
+         *
+         * @return the number of upserts queued
+         */
+        private int addSlices(BulkOperations bulk, ChannelProgress channel) {
+            Map<Integer, List<Integer>> succeeded = bySlice(channel.succeeded);
+            Map<Integer, List<Integer>> failed = bySlice(channel.failed);
+            Set<Integer> slices = new HashSet<>(succeeded.keySet());
+            slices.addAll(failed.keySet());
+            for (int slice : slices) {
+                Update update = new Update()
+                        .setOnInsert("jobId", jobId)
+                        .setOnInsert("channel", channel.channel)
+                        .setOnInsert("slice", slice);
+                if (succeeded.containsKey(slice)) {
+                    update.addToSet("succeeded").each(succeeded.get(slice).toArray());
+                }
+                if (failed.containsKey(slice)) {
+                    update.addToSet("failed").each(failed.get(slice).toArray());
+                }
+                Query query = new Query(Criteria.where("_id").is(NotificationJobProgress.idOf(jobId, channel.channel, slice)));
+                bulk.upsert(query, update);
+            }
+            return slices.size();
+        }
+
+        private Map<Integer, List<Integer>> bySlice(List<Integer> positions) {
+            Map<Integer, List<Integer>> slices = new HashMap<>();
+            for (Integer position : positions) {
+                slices.computeIfAbsent(position / POSITIONS_PER_SLICE, slice -> new ArrayList<>()).add(position);
+            }
+            return slices;
+        }
+    }
+
+    private static List<Integer> nullToEmpty(List<Integer> positions) {
+        return positions != null ? positions : List.of();
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String resolveWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,471 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.entity.NotificationContent;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal on local disk for notification log entries that could not be written to Mongo.
+ *
+ * <p>Entries are appended as CRC-checked records to memory-mapped segment files, so a stalled database costs
+ * neither heap nor audit data. A background replayer drains the oldest segment into the log collections once
+ * Mongo accepts writes again and deletes segments it has fully replayed. Each record carries its own _id, so a
+ * record replayed twice after a crash is rejected as a duplicate rather than stored again. A record torn by a
+ * crash mid-append fails its CRC check and marks the end of its segment.
+ */
+@Component
+@Slf4j
+public class NotificationLogJournal {
+
+    private static final int MAGIC = 0x4E4C4A31;
+    // Segment header: magic and the position up to which records have been replayed
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    // Record header: payload length and CRC32 of the payload
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int replayBatchSize;
+    private final long replayIntervalMs;
+    private final Codec<Document> documentCodec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    // Replayed segments whose file could not be deleted yet; retried on every replay
+    private final List<Path> undeleted = new ArrayList<>();
+    private long nextSequence;
+    private boolean closed;
+    private ScheduledExecutorService replayer;
+
+    public NotificationLogJournal(MongoTemplate mongoTemplate,
+                                  @Value("${notification.log.journal.enabled:true}") boolean enabled,
+                                  @Value("${notification.log.journal.directory:data/log-journal}") String directory,
+                                  @Value("${notification.log.journal.segment-size-bytes:67108864}") int segmentSize,
+                                  @Value("${notification.log.journal.replay-batch-size:500}") int replayBatchSize,
+                                  @Value("${notification.log.journal.replay-interval-ms:5000}") long replayIntervalMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = Math.max(64 * 1024, segmentSize);
+        this.replayBatchSize = Math.max(1, replayBatchSize);
+        this.replayIntervalMs = Math.max(100, replayIntervalMs);
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(NotificationLogJournal::isSegmentFile).sorted().toList();
+        }
+        for (Path file : files) {
+            Segment segment = Segment.open(file);
+            if (segment == null) {
+                log.error("Ignoring unreadable notification log journal segment {}", file);
+                continue;
+            }
+            segments.addLast(segment);
+            nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+        }
+        if (!segments.isEmpty()) {
+            log.info("Found {} notification log journal segments in {}, replaying in the background", segments.size(), directory);
+        }
+
+        replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notification-log-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        replayer.scheduleWithFixedDelay(() -> {
+            try {
+                replay();
+            } catch (Exception e) {
+                log.warn("Failed to replay notification log journal: {}", e.getMessage());
+            }
+        }, replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append a log entity to the journal
+     *
+     * @return false if the journal is disabled or closed, or the entry could not be stored
+     */
+    public boolean append(Object entry) {
+        if (!enabled) {
+            return false;
+        }
+        byte[] payload;
+        try {
+            payload = encode(entry);
+        } catch (Exception e) {
+            log.error("Failed to encode {} for the journal: {}", entry.getClass().getSimpleName(), e.getMessage());
+            return false;
+        }
+        if (RECORD_HEADER_SIZE + payload.length > segmentSize - SEGMENT_HEADER_SIZE) {
+            log.error("{} of {} bytes does not fit in a journal segment", entry.getClass().getSimpleName(), payload.length);
+            return false;
+        }
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            Segment active = segments.peekLast();
+            try {
+                if (active == null || !active.hasRoom(payload.length)) {
+                    active = Segment.create(directory.resolve(segmentName(nextSequence++)), segmentSize);
+                    segments.addLast(active);
+                }
+            } catch (IOException e) {
+                log.error("Failed to create notification log journal segment: {}", e.getMessage());
+                return false;
+            }
+            active.append(payload);
+            return true;
+        }
+    }
+
+    /**
+     * Move journaled records into Mongo, oldest first, until the journal is empty or a write fails
+     */
+    private void replay() {
+        synchronized (this) {
+            if (!undeleted.isEmpty()) {
+                undeleted.removeIf(this::deleteReplayed);
+            }
+        }
+        while (true) {
+            Batch batch;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                batch = nextBatch();
+            }
+            if (batch == null) {
+                return;
+            }
+            if (!insert(batch.documents)) {
+                return;
+            }
+            synchronized (this) {
+                batch.segment.markReplayed(batch.end);
+            }
+            log.info("Replayed {} journaled notification log entries", batch.count);
+        }
+    }
+
+    /**
+     * Read the next records to replay, deleting segments that have been fully replayed
+     */
+    private Batch nextBatch() {
+        while (true) {
+            Segment oldest = segments.peekFirst();
+            if (oldest == null) {
+                return null;
+            }
+            if (oldest.readPosition >= oldest.writePosition) {
+                if (oldest == segments.peekLast()) {
+                    return null;
+                }
+                segments.removeFirst();
+                oldest.close();
+                delete(oldest.file);
+                continue;
+            }
+            Map<String, List<Document>> documents = new LinkedHashMap<>();
+            int position = oldest.readPosition;
+            int count = 0;
+            while (position < oldest.writePosition && count < replayBatchSize) {
+                byte[] payload = oldest.read(position);
+                decode(payload, documents);
+                position += RECORD_HEADER_SIZE + payload.length;
+                count++;
+            }
+            return new Batch(oldest, position, count, documents);
+        }
+    }
+
+    private void delete(Path file) {
+        if (!deleteReplayed(file)) {
+            undeleted.add(file);
+        }
+    }
+
+    /**
+     * Delete a replayed segment file. Windows refuses while the file is still mapped, which lasts until the
+     * dropped buffer is garbage collected, so a failure is retried on the next replay.
+     *
+     * @return whether the file is gone
+     */
+    private boolean deleteReplayed(Path file) {
+        try {
+            if (!Files.deleteIfExists(file)) {
+                log.debug("Replayed journal segment {} was already deleted", file);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to delete replayed journal segment {}, retrying on the next replay: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Unordered insert per collection; records already stored by an earlier attempt count as written
+     */
+    private boolean insert(Map<String, List<Document>> documents) {
+        for (Map.Entry<String, List<Document>> entry : documents.entrySet()) {
+            try {
+                mongoTemplate.getCollection(entry.getKey()).insertMany(entry.getValue(), new InsertManyOptions().ordered(false));
+            } catch (MongoBulkWriteException e) {
+                List<UpdateOneModel<Document>> reused = new ArrayList<>();
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    if (error.getCode() != DUPLICATE_KEY) {
+                        log.warn("Journal replay into {} failed: {}", entry.getKey(), error.getMessage());
+                        return false;
+                    }
+                    Document document = entry.getValue().get(error.getIndex());
+                    if (entry.getKey().equals(mongoTemplate.getCollectionName(NotificationContent.class))
+                            && document.get("lastUsedAt") != null) {
+                        // Shared content that is already stored still has to outlive the replayed logs
+                        reused.add(new UpdateOneModel<>(Filters.eq("_id", document.get("_id")),
+                                Updates.max("lastUsedAt", document.get("lastUsedAt"))));
+                    }
+                }
+                if (!reused.isEmpty()) {
+                    try {
+                        mongoTemplate.getCollection(entry.getKey()).bulkWrite(reused);
+                    } catch (Exception ex) {
+                        log.debug("Journal replay into {} deferred: {}", entry.getKey(), ex.getMessage());
+                        return false;
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Journal replay into {} deferred: {}", entry.getKey(), e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        if (replayer != null) {
+            replayer.shutdownNow();
+        }
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Payload: collection name length, collection name, BSON document
+     */
+    private byte[] encode(Object entry) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(entry, document);
+        document.putIfAbsent("_id", new ObjectId());
+
+        byte[] collection = mongoTemplate.getCollectionName(entry.getClass()).getBytes(StandardCharsets.UTF_8);
+        BasicOutputBuffer bson = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(bson)) {
+            documentCodec.encode(writer, document, EncoderContext.builder().build());
+        }
+        ByteBuffer payload = ByteBuffer.allocate(2 + collection.length + bson.getPosition());
+        payload.putShort((short) collection.length).put(collection).put(bson.toByteArray());
+        return payload.array();
+    }
+
+    private void decode(byte[] payload, Map<String, List<Document>> documents) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte[] collection = new byte[buffer.getShort()];
+        buffer.get(collection);
+        try (BsonBinaryReader reader = new BsonBinaryReader(buffer.slice())) {
+            Document document = documentCodec.decode(reader, DecoderContext.builder().build());
+            documents.computeIfAbsent(new String(collection, StandardCharsets.UTF_8), name -> new ArrayList<>()).add(document);
+        }
+    }
+
+    private static boolean isSegmentFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static String segmentName(long sequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private record Batch(Segment segment, int end, int count, Map<String, List<Document>> documents) {
+    }
+
+    /**
+     * One memory-mapped journal file. Callers synchronize on the journal.
+     */
+    private static final class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        // Dropped on close so the mapping can be released before the file is deleted
+        private MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(Path file, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.putInt(4, SEGMENT_HEADER_SIZE);
+            segment.readPosition = SEGMENT_HEADER_SIZE;
+            segment.writePosition = SEGMENT_HEADER_SIZE;
+            return segment;
+        }
+
+        /**
+         * Map an existing segment and find the end of its last intact record
+         */
+        private static Segment open(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size < SEGMENT_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                channel.close();
+                return null;
+            }
+            Segment segment = new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            int readPosition = segment.buffer.getInt(4);
+            if (segment.buffer.getInt(0) != MAGIC || readPosition < SEGMENT_HEADER_SIZE || readPosition > size) {
+                channel.close();
+                return null;
+            }
+            segment.readPosition = readPosition;
+            int position = readPosition;
+            int length;
+            while ((length = segment.validRecordLength(position)) >= 0) {
+                position += RECORD_HEADER_SIZE + length;
+            }
+            segment.writePosition = position;
+            return segment;
+        }
+
+        private boolean hasRoom(int payloadLength) {
+            return (long) writePosition + RECORD_HEADER_SIZE + payloadLength <= buffer.capacity();
+        }
+
+        /**
+         * Write the payload and its CRC before the length, so a partially written record is never taken as complete
+         */
+        private void append(byte[] payload) {
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.put(writePosition + RECORD_HEADER_SIZE, payload);
+            buffer.putInt(writePosition + 4, (int) crc.getValue());
+            buffer.putInt(writePosition, payload.length);
+            writePosition += RECORD_HEADER_SIZE + payload.length;
+        }
+
+        private byte[] read(int position) {
+            byte[] payload = new byte[buffer.getInt(position)];
+            buffer.get(position + RECORD_HEADER_SIZE, payload);
+            return payload;
+        }
+
+        /**
+         * Length of the record at the position, or -1 at the end of the segment or at a torn record
+         */
+        private int validRecordLength(int position) {
+            if ((long) position + RECORD_HEADER_SIZE > buffer.capacity()) {
+                return -1;
+            }
+            int length = buffer.getInt(position);
+            if (length <= 0 || (long) position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                return -1;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == buffer.getInt(position + 4) ? length : -1;
+        }
+
+        private void markReplayed(int position) {
+            readPosition = position;
+            buffer.putInt(4, position);
+        }
+
+        private void close() {
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close journal segment {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
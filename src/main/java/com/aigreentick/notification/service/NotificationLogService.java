@@ -1,62 +1,73 @@
 package com.aigreentick.notification.service;
 
-import com.aigreentick.notification.entity.EmailNotificationLog;
-import com.aigreentick.notification.entity.PushNotificationLog;
-import com.aigreentick.notification.repository.EmailNotificationLogRepository;
-import com.aigreentick.notification.repository.PushNotificationLogRepository;
+import com.aigreentick.notification.entity.DeliveryRecord;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Records the outcome of every delivery as a {@link DeliveryRecord} and counts it in {@link DeliveryStatsService}. Records are written behind by
+ * {@link NotificationLogWriter}, so a send never waits for its log write. Each record only references its
+ * message content, which {@link NotificationContentService} stores once; {@link DeliveryLogQueryService} reads
+ * the records back.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationLogService {
 
-    private final EmailNotificationLogRepository emailNotificationLogRepository;
-    private final PushNotificationLogRepository pushNotificationLogRepository;
+    private final NotificationLogWriter notificationLogWriter;
+    private final NotificationContentService notificationContentService;
+    private final DeliveryStatsService deliveryStatsService;
 
-    public void saveEmailLog(String to, List<String> cc, String title, String body, boolean success, String errorMessage) {
+    /**
+     * @param template name of the email template the message was rendered from, or null
+     */
+    public void saveEmailLog(String to, List<String> cc, String title, String body, String template, boolean success,
+                             String errorCode, String errorMessage) {
+        deliveryStatsService.record(DeliveryRecord.Channel.EMAIL, template, success, errorCode);
         try {
-            EmailNotificationLog log = new EmailNotificationLog();
-            log.setTo(to);
-            log.setCc(cc);
-            log.setTitle(title);
-            log.setBody(body);
-            log.setSuccess(success);
-            log.setErrorMessage(errorMessage);
-            EmailNotificationLog saved = emailNotificationLogRepository.save(log);
-            logDebug("email", saved != null ? saved.getId() : null, success, errorMessage);
+            // Title, body and cc are stored once per send in notification_contents
+            String contentId = notificationContentService.storeEmailContent(title, body, cc);
+            notificationLogWriter.write(toRecord(DeliveryRecord.Channel.EMAIL, to, contentId, success, errorCode, errorMessage));
+            logDebug("email", to, success, errorMessage);
         } catch (Exception ex) {
             log.error("Failed to save email notification log for to={} title={}: {}", to, title, ex.getMessage(), ex);
         }
     }
 
-    public void savePushLog(String deviceId, String title, String description, String imageUrl, boolean success, String errorMessage) {
+    public void savePushLog(String deviceId, String title, String description, String imageUrl, boolean success,
+                            String errorCode, String errorMessage) {
+        deliveryStatsService.record(DeliveryRecord.Channel.PUSH, null, success, errorCode);
         try {
-            PushNotificationLog log = new PushNotificationLog();
-            log.setDeviceId(deviceId);
-            log.setTitle(title);
-            log.setDescription(description);
-            log.setImageUrl(imageUrl);
-            log.setSuccess(success);
-            log.setErrorMessage(errorMessage);
-            PushNotificationLog saved = pushNotificationLogRepository.save(log);
-            logDebug("push", saved != null ? saved.getId() : null, success, errorMessage);
+            String contentId = notificationContentService.storePushContent(title, description, imageUrl);
+            notificationLogWriter.write(toRecord(DeliveryRecord.Channel.PUSH, deviceId, contentId, success, errorCode, errorMessage));
+            logDebug("push", deviceId, success, errorMessage);
         } catch (Exception ex) {
             log.error("Failed to save push notification log for deviceId={} title={}: {}", deviceId, title, ex.getMessage(), ex);
         }
     }
 
-    private void logDebug(String type, String id, boolean success, String errorMessage) {
+    /**
+     * Known errors are stored as a status code only; the message of an unknown error is kept as is
+     */
+    private static DeliveryRecord toRecord(DeliveryRecord.Channel channel, String recipient, String contentId,
+                                           boolean success, String errorCode, String errorMessage) {
+        int status = DeliveryStatus.of(success, errorCode);
+        // Set here rather than on insert so records replayed from the journal keep their send time
+        return new DeliveryRecord(new ObjectId(), channel, recipient, contentId, status, success,
+                status == DeliveryStatus.UNKNOWN ? errorMessage : null, LocalDateTime.now());
+    }
+
+    private void logDebug(String type, String recipient, boolean success, String errorMessage) {
         if (success) {
-            log.debug("Saved {} notification log id={} success=true", type, id);
+            log.debug("Queued {} notification log recipient={} success=true", type, recipient);
         } else {
-            log.debug("Saved {} notification log id={} success=false error={} ", type, id, errorMessage);
+            log.debug("Queued {} notification log recipient={} success=false error={} ", type, recipient, errorMessage);
         }
     }
 }
-
-
@@ -0,0 +1,210 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.entity.NotificationContent;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for notification log entries.
+ *
+ * <p>Senders hand entries to a bounded queue and move on; a background flusher writes them with unordered bulk
+ * inserts once a batch fills up or the flush interval passes. When the queue is full the sender waits for room,
+ * up to the enqueue timeout, and then writes its entry itself, so a slow database slows senders down instead of
+ * growing the heap. Entries still queued at shutdown are flushed before the application stops.
+ *
+ * <p>With the {@link NotificationLogJournal} enabled, a full buffer spills to the journal instead of making the
+ * sender wait, and entries that fail to insert are journaled and replayed later instead of being dropped.
+ */
+@Component
+@Slf4j
+public class NotificationLogWriter {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationLogJournal journal;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final BlockingQueue<Object> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public NotificationLogWriter(MongoTemplate mongoTemplate,
+                                 NotificationLogJournal journal,
+                                 @Value("${notification.log.buffer-size:10000}") int bufferSize,
+                                 @Value("${notification.log.batch-size:500}") int batchSize,
+                                 @Value("${notification.log.flush-interval-ms:200}") long flushIntervalMs,
+                                 @Value("${notification.log.enqueue-timeout-ms:5000}") long enqueueTimeoutMs,
+                                 @Value("${notification.log.shutdown-timeout-ms:30000}") long shutdownTimeoutMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.journal = journal;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.enqueueTimeoutMs = Math.max(0, enqueueTimeoutMs);
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.flusher = new Thread(this::run, "notification-log-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queue a log entity for insertion into its collection
+     */
+    public void write(Object entry) {
+        if (running) {
+            try {
+                if (queue.offer(entry) || journal.append(entry)
+                        || queue.offer(entry, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                log.warn("Notification log buffer is full, writing {} synchronously", entry.getClass().getSimpleName());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Full buffer, interrupted sender or stopped flusher
+        insert(entry.getClass(), List.of(entry));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            flusher.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.error("{} notification log entries were not written before shutdown", queue.size());
+        }
+    }
+
+    private void run() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Object first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Keep filling the batch until it is full or the first entry has waited a flush interval
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Object next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Only shutdown interrupts the flusher; what is queued is still written
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Object> batch) {
+        Map<Class<?>, List<Object>> byType = new LinkedHashMap<>();
+        for (Object entry : batch) {
+            byType.computeIfAbsent(entry.getClass(), type -> new ArrayList<>()).add(entry);
+        }
+        byType.forEach(this::insert);
+    }
+
+    private void insert(Class<?> type, List<Object> entries) {
+        try {
+            int inserted = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type)
+                    .insert(entries)
+                    .execute()
+                    .getInsertedCount();
+            log.debug("Wrote {} {} entries", inserted, type.getSimpleName());
+        } catch (BulkOperationException e) {
+            // Unordered: every entry without a write error was still inserted
+            List<Object> failed = new ArrayList<>(e.getErrors().size());
+            List<NotificationContent> reused = new ArrayList<>();
+            for (BulkWriteError error : e.getErrors()) {
+                Object entry = entries.get(error.getIndex());
+                if (error.getCode() != DUPLICATE_KEY) {
+                    failed.add(entry);
+                } else if (entry instanceof NotificationContent content) {
+                    // Shared content that is already stored
+                    reused.add(content);
+                }
+            }
+            if (!reused.isEmpty()) {
+                touch(reused);
+            }
+            if (failed.isEmpty()) {
+                return;
+            }
+            log.warn("Failed to write {} of {} {} entries: {}", failed.size(), entries.size(), type.getSimpleName(), e.getMessage());
+            spill(type, failed);
+        } catch (Exception e) {
+            log.warn("Failed to write {} {} entries: {}", entries.size(), type.getSimpleName(), e.getMessage());
+            spill(type, entries);
+        }
+    }
+
+    /**
+     * Move lastUsedAt of content that was already stored forward, so it outlives the logs that reference it
+     */
+    private void touch(List<NotificationContent> contents) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationContent.class);
+            for (NotificationContent content : contents) {
+                bulk.updateOne(new Query(Criteria.where("_id").is(content.getId())),
+                        new Update().max("lastUsedAt", content.getLastUsedAt()));
+            }
+            bulk.execute();
+        } catch (Exception e) {
+            // A replayed duplicate refreshes lastUsedAt the same way
+            log.warn("Failed to refresh {} shared contents: {}", contents.size(), e.getMessage());
+            spill(NotificationContent.class, new ArrayList<>(contents));
+        }
+    }
+
+    /**
+     * Hand entries the database did not take to the journal for a later replay
+     */
+    private void spill(Class<?> type, List<Object> entries) {
+        int lost = 0;
+        for (Object entry : entries) {
+            if (!journal.append(entry)) {
+                lost++;
+            }
+        }
+        if (lost > 0) {
+            log.error("Dropped {} {} entries that could not be written or journaled", lost, type.getSimpleName());
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package com.aigreentick.notification.service;
 
+import com.aigreentick.notification.dto.DeliveryResult;
 import com.aigreentick.notification.dto.EmailNotificationRequest;
+import com.aigreentick.notification.dto.ErrorSummary;
 import com.aigreentick.notification.dto.NotificationResponse;
 import com.aigreentick.notification.dto.PushNotificationRequest;
+import com.aigreentick.notification.dto.TemplateEmailNotificationRequest;
+import com.aigreentick.notification.entity.EmailTemplate;
 import com.google.firebase.messaging.*;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.SimpleMailMessage;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -23,62 +37,160 @@ public class NotificationService {
 
     private final JavaMailSender mailSender;
     private final FirebaseMessaging firebaseMessaging;
+    private final FcmBatchSender fcmBatchSender;
+    private final SmtpTransportPool smtpTransportPool;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final RetryScheduler retryScheduler;
+    private final DeviceTokenHealthService deviceTokenHealthService;
     private final NotificationLogService notificationLogService;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    private final EmailTemplateService emailTemplateService;
+    private final CompiledTemplateCache compiledTemplateCache;
+
+    private static final String TEMPLATE_ERROR = "TEMPLATE_ERROR";
+    private static final String INVALID_MESSAGE = "INVALID_MESSAGE";
+    private static final String INVALID_ADDRESS = "INVALID_ADDRESS";
+    private static final String DEAD_TOKEN = "DEAD_TOKEN";
+
+    @Value("${notification.response.max-error-samples:20}")
+    private int maxErrorSamples;
+
+    @Value("${mail.bulk.batch-size:100}")
+    private int bulkBatchSize;
 
     /**
-     * Send email notification to multiple recipients
+     * Send email notification to multiple recipients over one pooled SMTP connection
      */
     public NotificationResponse sendEmailNotification(EmailNotificationRequest request) {
+        return sendEmailNotification(request, DeliveryListener.NONE);
+    }
+
+    /**
+     * Send email notification, reporting each recipient's outcome to the listener as it happens.
+     * Transient SMTP failures are retried in the background; their final outcome reaches the listener when retries end.
+     */
+    public NotificationResponse sendEmailNotification(EmailNotificationRequest request, DeliveryListener listener) {
         log.info("Sending email notification to {} recipients", request.getTo().size());
+        return sendEmails(request.getTo(), toEmail -> request, null, listener);
+    }
+
+    /**
+     * Render a stored email template for each recipient with their variables and send it.
+     * Recipients without variables of their own all get the same content, so it is rendered and encoded once
+     * for them and they are sent first; personalised recipients follow, rendered one at a time.
+     */
+    public NotificationResponse sendTemplateEmailNotification(TemplateEmailNotificationRequest request) {
+        EmailTemplate template = emailTemplateService.getActiveTemplate(request.getTemplateId(), request.getTemplateName());
+        CompiledTemplateCache.Compiled compiled = compiledTemplateCache.email(template);
+        log.info("Sending email template '{}' to {} recipients", template.getName(), request.getTo().size());
+
+        List<String> recipients = new ArrayList<>(request.getTo().size());
+        List<String> personalised = new ArrayList<>();
+        for (String toEmail : request.getTo()) {
+            (request.hasOwnVariables(toEmail) ? personalised : recipients).add(toEmail);
+        }
+        int sharedCount = recipients.size();
+        recipients.addAll(personalised);
+
+        EmailNotificationRequest[] shared = new EmailNotificationRequest[1];
+        return sendEmails(recipients, toEmail -> {
+            if (!request.hasOwnVariables(toEmail)) {
+                if (shared[0] == null) {
+                    shared[0] = render(compiled, request.getCc(), request.variablesFor(toEmail), recipients.subList(0, sharedCount));
+                }
+                return shared[0];
+            }
+            return render(compiled, request.getCc(), request.variablesFor(toEmail), List.of(toEmail));
+        }, template.getName(), DeliveryListener.NONE);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    private static EmailNotificationRequest render(CompiledTemplateCache.Compiled compiled, List<String> cc,
+                                                   Map<String, String> variables, List<String> to) {
+        return new EmailNotificationRequest(to, cc, compiled.getTitle().render(variables), compiled.getBody().render(variables));
+    }
+
+    /**
+     * Send one message per recipient over a pooled SMTP connection.
+     * messageFor supplies the subject and body for each recipient; it may throw IllegalArgumentException
+     * when the message cannot be built, which fails only that recipient. Consecutive recipients that get
+     * the same subject, body and Cc share one encoded message.
+     */
+    private NotificationResponse sendEmails(List<String> recipients, Function<String, EmailNotificationRequest> messageFor,
+                                            String template, DeliveryListener listener) {
         int successCount = 0;
         int failureCount = 0;
-        List<String> errors = new ArrayList<>();
+        int retryingCount = 0;
+        ErrorSummary errors = new ErrorSummary(maxErrorSamples);
 
-        try {
-            for (String toEmail : request.getTo()) {
+        TokenBucket rateLimiter = rateLimiterRegistry.email();
+        try (SmtpTransportPool.Lease lease = smtpTransportPool.borrow()) {
+            EmailNotificationRequest preparedRequest = null;
+            PreparedEmail prepared = null;
+            for (String toEmail : recipients) {
+                EmailNotificationRequest request;
                 try {
-                    SimpleMailMessage message = new SimpleMailMessage();
-                    message.setTo(toEmail);
-                    
-                    // Add CC recipients if provided
-                    if (request.getCc() != null && !request.getCc().isEmpty()) {
-                        message.setCc(request.getCc().toArray(new String[0]));
+                    request = messageFor.apply(toEmail);
+                    // Identical content is encoded once and shared by every recipient
+                    if (preparedRequest == null || !sameContent(request, preparedRequest)) {
+                        prepared = prepare(request);
+                        preparedRequest = request;
                     }
-                    
-                    message.setSubject(request.getTitle());
-                    message.setText(request.getBody());
-                    
-                    mailSender.send(message);
+                } catch (IllegalArgumentException | MessagingException e) {
+                    String errorCode = e instanceof IllegalArgumentException ? TEMPLATE_ERROR : INVALID_MESSAGE;
+                    failureCount++;
+                    errors.add(errorCode, "Failed to build email for " + toEmail + ": " + e.getMessage());
+                    log.error("Failed to build email for {}: {}", toEmail, e.getMessage());
+                    listener.onDelivery(DeliveryResult.failure(toEmail, errorCode, e.getMessage()));
+                    continue;
+                }
+                try {
+                    rateLimiter.acquire(1);
+                    lease.send(prepared.forRecipient(toEmail));
                     successCount++;
                     log.info("Email sent successfully to: {}", toEmail);
+                    listener.onDelivery(DeliveryResult.success(toEmail, null));
                     notificationLogService.saveEmailLog(
                             toEmail,
                             request.getCc(),
                             request.getTitle(),
                             request.getBody(),
+                            template,
                             true,
+                            null,
                             null
                     );
                     
                 } catch (Exception e) {
+                    DeliveryErrorClassifier.Classification failure = DeliveryErrorClassifier.classifyMail(e);
+                    if (failure.isRetryable() && scheduleEmailRetry(request, prepared, toEmail, template, false, 1, failure, e, listener)) {
+                        retryingCount++;
+                        log.warn("Transient failure sending email to {} ({}): {}", toEmail, failure.getErrorCode(), e.getMessage());
+                        continue;
+                    }
                     failureCount++;
-                    String error = "Failed to send email to " + toEmail + ": " + e.getMessage();
-                    errors.add(error);
+                    errors.add(failure.getErrorCode(), "Failed to send email to " + toEmail + ": " + e.getMessage());
                     log.error("Failed to send email to {}: {}", toEmail, e.getMessage());
+                    listener.onDelivery(DeliveryResult.failure(toEmail, failure.getErrorCode(), e.getMessage()));
                     notificationLogService.saveEmailLog(
                             toEmail,
                             request.getCc(),
                             request.getTitle(),
                             request.getBody(),
+                            template,
                             false,
+                            failure.getErrorCode(),
                             e.getMessage()
                     );
                 }
             }
 
-            String message = String.format("Email notification sent. Success: %d, Failed: %d", successCount, failureCount);
-            return new NotificationResponse(true, message, successCount, failureCount, errors.isEmpty() ? null : errors);
+            String message = String.format("Email notification sent. Success: %d, Failed: %d, Retrying: %d",
+                    successCount, failureCount, retryingCount);
+            NotificationResponse response = new NotificationResponse(true, message, successCount, failureCount, errors.isEmpty() ? null : errors);
+            response.setRetryingCount(retryingCount);
+            return response;
             
         } catch (Exception e) {
             log.error("Error sending email notification: {}", e.getMessage(), e);
@@ -86,75 +198,274 @@ public class NotificationService {
         }
     }
 
+    private static boolean sameContent(EmailNotificationRequest a, EmailNotificationRequest b) {
+        return a == b || (Objects.equals(a.getTitle(), b.getTitle()) && Objects.equals(a.getBody(), b.getBody())
+                && Objects.equals(a.getCc(), b.getCc()));
+    }
+
     /**
-     * Send email notification asynchronously
+     * Encode subject, Cc and body once; recipients are added per message
      */
-    public CompletableFuture<NotificationResponse> sendEmailNotificationAsync(EmailNotificationRequest request) {
-        return CompletableFuture.supplyAsync(() -> sendEmailNotification(request), executorService);
+    private PreparedEmail prepare(EmailNotificationRequest request) throws MessagingException {
+        return PreparedEmail.prepare(mailSender.createMimeMessage(), request.getTitle(), request.getBody(), request.getCc());
+    }
+
+    private boolean scheduleEmailRetry(EmailNotificationRequest request, PreparedEmail prepared, String toEmail, String template,
+                                       boolean bulk, int failedAttempt, DeliveryErrorClassifier.Classification failure,
+                                       Exception cause, DeliveryListener listener) {
+        return scheduleEmailRetry(request, prepared, toEmail, template, bulk, failedAttempt, failure.getErrorCode(),
+                cause.getMessage(), failure.getRetryAfterMillis(), listener);
     }
 
     /**
-     * Send push notification to multiple devices
+     * Hand a recipient to the retry scheduler; the listener learns it is retrying before the retry can run
      */
-    public NotificationResponse sendPushNotification(PushNotificationRequest request) {
-        log.info("Sending push notification to {} devices", request.getDeviceIds().size());
-        
-        int successCount = 0;
-        int failureCount = 0;
-        List<String> errors = new ArrayList<>();
+    private boolean scheduleEmailRetry(EmailNotificationRequest request, PreparedEmail prepared, String toEmail, String template,
+                                       boolean bulk, int failedAttempt, String errorCode, String errorMessage,
+                                       long retryAfterMillis, DeliveryListener listener) {
+        if (!retryScheduler.canRetry(failedAttempt)) {
+            return false;
+        }
+        listener.onRetrying(DeliveryResult.retryableFailure(toEmail, errorCode, errorMessage, retryAfterMillis));
+        return retryScheduler.schedule("email to " + toEmail, failedAttempt, retryAfterMillis,
+                () -> retryEmail(request, prepared, toEmail, template, bulk, failedAttempt + 1, listener),
+                () -> abandonEmailRetry(request, toEmail, template, errorCode, errorMessage, listener));
+    }
+
+    /**
+     * Record a recipient whose retry was still pending at shutdown as failed with its last error
+     */
+    private void abandonEmailRetry(EmailNotificationRequest request, String toEmail, String template, String errorCode,
+                                   String errorMessage, DeliveryListener listener) {
+        notificationLogService.saveEmailLog(toEmail, request.getCc(), request.getTitle(), request.getBody(), template, false,
+                errorCode, errorMessage);
+        listener.onDelivery(DeliveryResult.failure(toEmail, errorCode, errorMessage));
+    }
+
+    /**
+     * Retry a single recipient on a retry thread; the final outcome goes to the email log and the listener.
+     * A recipient of a bulk send is retried without Cc and without its address in the headers.
+     */
+    private void retryEmail(EmailNotificationRequest request, PreparedEmail prepared, String toEmail, String template, boolean bulk,
+                            int attempt, DeliveryListener listener) {
+        try (SmtpTransportPool.Lease lease = smtpTransportPool.borrow()) {
+            rateLimiterRegistry.email().acquire(1);
+            if (bulk) {
+                lease.send(prepared.forUndisclosedRecipients(), new Address[]{new InternetAddress(toEmail)});
+            } else {
+                lease.send(prepared.forRecipient(toEmail));
+            }
+        } catch (Exception e) {
+            DeliveryErrorClassifier.Classification failure = DeliveryErrorClassifier.classifyMail(e);
+            if (failure.isRetryable() && scheduleEmailRetry(request, prepared, toEmail, template, bulk, attempt, failure, e, listener)) {
+                log.warn("Transient failure sending email to {} on attempt {} ({}): {}", toEmail, attempt, failure.getErrorCode(), e.getMessage());
+                return;
+            }
+            log.error("Failed to send email to {} after {} attempts: {}", toEmail, attempt, e.getMessage());
+            notificationLogService.saveEmailLog(toEmail, request.getCc(), request.getTitle(), request.getBody(), template, false,
+                    failure.getErrorCode(), e.getMessage());
+            listener.onDelivery(DeliveryResult.failure(toEmail, failure.getErrorCode(), e.getMessage()));
+            return;
+        }
+        // Reported outside the send's try block, so a failing listener is never mistaken for a failed send
+        log.info("Email sent successfully to: {} on attempt {}", toEmail, attempt);
+        notificationLogService.saveEmailLog(toEmail, request.getCc(), request.getTitle(), request.getBody(), template, true, null, null);
+        listener.onDelivery(DeliveryResult.success(toEmail, null));
+    }
+
+    /**
+     * Send identical content to many recipients with one SMTP transaction per batch.
+     * Each message carries up to mail.bulk.batch-size envelope recipients that are left out of the headers,
+     * so recipients cannot see each other. Each recipient's outcome is taken from its RCPT TO reply, and
+     * recipients the server deferred are retried one by one. Cc recipients get a single copy with the first batch.
+     */
+    public NotificationResponse sendBulkEmailNotification(EmailNotificationRequest request) {
+        int batchSize = Math.max(1, bulkBatchSize);
+        log.info("Sending bulk email notification to {} recipients in batches of {}", request.getTo().size(), batchSize);
+        DeliveryTally tally = new DeliveryTally(maxErrorSamples);
+
+        TokenBucket rateLimiter = rateLimiterRegistry.email();
+        try (SmtpTransportPool.Lease lease = smtpTransportPool.borrow()) {
+            PreparedEmail prepared = prepare(request);
+            List<String> recipients = request.getTo();
+            for (int from = 0; from < recipients.size(); from += batchSize) {
+                List<String> batch = recipients.subList(from, Math.min(recipients.size(), from + batchSize));
+                List<String> copies = from == 0 && request.getCc() != null ? request.getCc() : List.of();
+                List<DeliveryResult> results = sendBulkBatch(lease, rateLimiter, prepared, batch, copies);
+                recordBulkEmailResults(request, prepared, results, tally);
+            }
+
+            String message = String.format("Bulk email notification sent. Success: %d, Failed: %d, Retrying: %d",
+                    tally.successCount, tally.failureCount, tally.retryingCount);
+            NotificationResponse response = new NotificationResponse(true, message, tally.successCount, tally.failureCount,
+                    tally.errors.isEmpty() ? null : tally.errors);
+            response.setRetryingCount(tally.retryingCount);
+            return response;
+
+        } catch (Exception e) {
+            log.error("Error sending bulk email notification: {}", e.getMessage(), e);
+            return new NotificationResponse(false, "Failed to send bulk email notification: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Send one message to a batch of envelope recipients and turn the RCPT TO replies into per-recipient results.
+     * With mail.smtp.sendpartial the message still goes to the accepted recipients when some are rejected.
+     */
+    private List<DeliveryResult> sendBulkBatch(SmtpTransportPool.Lease lease, TokenBucket rateLimiter, PreparedEmail prepared,
+                                               List<String> batch, List<String> copies) {
+        List<DeliveryResult> results = new ArrayList<>(batch.size());
+        List<String> addressed = new ArrayList<>(batch.size());
+        List<Address> envelope = new ArrayList<>(batch.size() + copies.size());
+        for (String toEmail : batch) {
+            try {
+                envelope.add(new InternetAddress(toEmail, true));
+                addressed.add(toEmail);
+            } catch (AddressException e) {
+                results.add(DeliveryResult.failure(toEmail, INVALID_ADDRESS, e.getMessage()));
+            }
+        }
+        if (addressed.isEmpty()) {
+            return results;
+        }
+        for (String copy : copies) {
+            try {
+                envelope.add(new InternetAddress(copy, true));
+            } catch (AddressException e) {
+                log.warn("Skipping invalid cc address {}: {}", copy, e.getMessage());
+            }
+        }
 
         try {
-            // Create the notification payload
-            Notification notification = Notification.builder()
-                    .setTitle(request.getTitle())
-                    .setBody(request.getDescription())
-                    .setImage(request.getImageUrl())
-                    .build();
+            // The limit is on messages delivered, so one transaction takes a permit per envelope recipient
+            rateLimiter.acquire(envelope.size());
+            lease.send(prepared.forUndisclosedRecipients(), envelope.toArray(new Address[0]));
+            for (String toEmail : addressed) {
+                results.add(DeliveryResult.success(toEmail, null));
+            }
+        } catch (SendFailedException e) {
+            // Each rejected RCPT TO is chained as an SMTPAddressFailedException carrying the server's reply
+            Map<String, Exception> rejections = new HashMap<>();
+            for (Exception next = e.getNextException(); next != null;
+                 next = next instanceof MessagingException m ? m.getNextException() : null) {
+                if (next instanceof SMTPAddressFailedException afe && afe.getAddress() != null) {
+                    rejections.put(afe.getAddress().getAddress().toLowerCase(Locale.ROOT), afe);
+                }
+            }
+            Set<String> sent = new HashSet<>();
+            if (e.getValidSentAddresses() != null) {
+                for (Address address : e.getValidSentAddresses()) {
+                    if (address instanceof InternetAddress internetAddress) {
+                        sent.add(internetAddress.getAddress().toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            for (String toEmail : addressed) {
+                String key = toEmail.toLowerCase(Locale.ROOT);
+                if (sent.contains(key)) {
+                    results.add(DeliveryResult.success(toEmail, null));
+                } else {
+                    // Accepted at RCPT TO but not sent means the transaction itself failed
+                    results.add(bulkFailure(toEmail, rejections.getOrDefault(key, e)));
+                }
+            }
+        } catch (Exception e) {
+            for (String toEmail : addressed) {
+                results.add(bulkFailure(toEmail, e));
+            }
+        }
+        return results;
+    }
 
-            // Create the message
-            Message.Builder messageBuilder = Message.builder()
-                    .setNotification(notification)
-                    .putData("title", request.getTitle())
-                    .putData("body", request.getDescription());
+    private static DeliveryResult bulkFailure(String toEmail, Exception e) {
+        DeliveryErrorClassifier.Classification failure = DeliveryErrorClassifier.classifyMail(e);
+        return failure.isRetryable()
+                ? DeliveryResult.retryableFailure(toEmail, failure.getErrorCode(), e.getMessage(), failure.getRetryAfterMillis())
+                : DeliveryResult.failure(toEmail, failure.getErrorCode(), e.getMessage());
+    }
 
-            if (request.getImageUrl() != null && !request.getImageUrl().isEmpty()) {
-                messageBuilder.putData("image", request.getImageUrl());
+    /**
+     * Log each recipient of a bulk batch and schedule individual retries for deferred recipients
+     */
+    private void recordBulkEmailResults(EmailNotificationRequest request, PreparedEmail prepared, List<DeliveryResult> results,
+                                        DeliveryTally tally) {
+        for (DeliveryResult result : results) {
+            String toEmail = result.getRecipient();
+            if (result.isSuccess()) {
+                tally.successCount++;
+                log.debug("Bulk email accepted for: {}", toEmail);
+            } else if (result.isRetryable()
+                    && scheduleEmailRetry(request, prepared, toEmail, null, true, 1, result.getErrorCode(),
+                    result.getErrorMessage(), result.getRetryAfterMillis(), DeliveryListener.NONE)) {
+                tally.retryingCount++;
+                log.warn("Transient failure sending bulk email to {} ({}): {}", toEmail, result.getErrorCode(), result.getErrorMessage());
+                continue;
+            } else {
+                tally.failureCount++;
+                tally.errors.add(result.getErrorCode(), "Failed to send email to " + toEmail + ": " + result.getErrorMessage());
+                log.error("Failed to send bulk email to {}: {}", toEmail, result.getErrorMessage());
             }
+            notificationLogService.saveEmailLog(
+                    toEmail,
+                    request.getCc(),
+                    request.getTitle(),
+                    request.getBody(),
+                    null,
+                    result.isSuccess(),
+                    result.getErrorCode(),
+                    result.getErrorMessage()
+            );
+        }
+    }
 
-            // Send to each device
-            for (String deviceId : request.getDeviceIds()) {
-                try {
-                    Message message = messageBuilder.setToken(deviceId).build();
-                    String response = firebaseMessaging.send(message);
-                    successCount++;
-                    log.info("Push notification sent successfully to device: {}, response: {}", deviceId, response);
-                    notificationLogService.savePushLog(
-                            deviceId,
-                            request.getTitle(),
-                            request.getDescription(),
-                            request.getImageUrl(),
-                            true,
-                            null
-                    );
-                    
-                } catch (FirebaseMessagingException e) {
-                    failureCount++;
-                    String error = "Failed to send push notification to device " + deviceId + ": " + e.getMessage();
-                    errors.add(error);
-                    log.error("Failed to send push notification to device {}: {}", deviceId, e.getMessage());
-                    notificationLogService.savePushLog(
-                            deviceId,
-                            request.getTitle(),
-                            request.getDescription(),
-                            request.getImageUrl(),
-                            false,
-                            e.getMessage()
-                    );
+    /**
+     * Send push notification to multiple devices using batched FCM multicast
+     */
+    public NotificationResponse sendPushNotification(PushNotificationRequest request) {
+        return sendPushNotification(request, DeliveryListener.NONE);
+    }
+
+    /**
+     * Send push notification, reporting each device's outcome to the listener as it happens.
+     * Devices that fail with a transient FCM error are retried in the background; their final outcome reaches the
+     * listener when retries end. Known-dead tokens are reported as failed without being sent.
+     */
+    public NotificationResponse sendPushNotification(PushNotificationRequest request, DeliveryListener listener) {
+        log.info("Sending push notification to {} devices", request.getDeviceIds().size());
+
+        try {
+            // Known-dead tokens never reach FCM
+            Set<String> deadDeviceIds = deviceTokenHealthService.findDead(request.getDeviceIds());
+            List<String> liveDeviceIds = request.getDeviceIds();
+            int skippedCount = 0;
+            if (!deadDeviceIds.isEmpty()) {
+                liveDeviceIds = new ArrayList<>(request.getDeviceIds().size());
+                for (String deviceId : request.getDeviceIds()) {
+                    if (deadDeviceIds.contains(deviceId)) {
+                        skippedCount++;
+                        listener.onDelivery(DeliveryResult.failure(deviceId, DEAD_TOKEN, "Device token was reported invalid by FCM"));
+                    } else {
+                        liveDeviceIds.add(deviceId);
+                    }
                 }
+                log.info("Skipping {} dead device tokens", skippedCount);
             }
 
-            String message = String.format("Push notification sent. Success: %d, Failed: %d", successCount, failureCount);
-            return new NotificationResponse(true, message, successCount, failureCount, errors.isEmpty() ? null : errors);
+            List<DeliveryResult> results = fcmBatchSender.send(
+                    liveDeviceIds,
+                    request.getTitle(),
+                    request.getDescription(),
+                    request.getImageUrl()
+            );
+            DeliveryTally tally = recordPushResults(request, results, listener, 1);
+
+            String message = String.format("Push notification sent. Success: %d, Failed: %d, Retrying: %d, Skipped: %d",
+                    tally.successCount, tally.failureCount, tally.retryingCount, skippedCount);
+            NotificationResponse response = new NotificationResponse(true, message, tally.successCount, tally.failureCount,
+                    tally.errors.isEmpty() ? null : tally.errors);
+            response.setRetryingCount(tally.retryingCount);
+            response.setSkippedCount(skippedCount);
+            return response;
             
         } catch (Exception e) {
             log.error("Error sending push notification: {}", e.getMessage(), e);
@@ -163,10 +474,108 @@ public class NotificationService {
     }
 
     /**
-     * Send push notification asynchronously
+     * Log each device's outcome and schedule one batched retry for all transient failures
      */
-    public CompletableFuture<NotificationResponse> sendPushNotificationAsync(PushNotificationRequest request) {
-        return CompletableFuture.supplyAsync(() -> sendPushNotification(request), executorService);
+    private DeliveryTally recordPushResults(PushNotificationRequest request, List<DeliveryResult> results,
+                                            DeliveryListener listener, int attempt) {
+        deviceTokenHealthService.recordResults(results);
+
+        DeliveryTally tally = new DeliveryTally(maxErrorSamples);
+        boolean retryAllowed = retryScheduler.canRetry(attempt);
+        List<DeliveryResult> retryable = new ArrayList<>();
+
+        for (DeliveryResult result : results) {
+            String deviceId = result.getRecipient();
+            if (result.isSuccess()) {
+                tally.successCount++;
+                log.debug("Push notification sent successfully to device: {}, response: {}", deviceId, result.getMessageId());
+            } else if (result.isRetryable() && retryAllowed) {
+                retryable.add(result);
+                continue;
+            } else {
+                tally.failureCount++;
+                tally.errors.add(result.getErrorCode(), "Failed to send push notification to device " + deviceId + ": " + result.getErrorMessage());
+                log.error("Failed to send push notification to device {}: {}", deviceId, result.getErrorMessage());
+            }
+            savePushLog(request, result);
+            listener.onDelivery(result);
+        }
+
+        if (!retryable.isEmpty()) {
+            retryable.forEach(listener::onRetrying);
+            if (schedulePushRetry(request, retryable, attempt, listener)) {
+                tally.retryingCount += retryable.size();
+            } else {
+                for (DeliveryResult result : retryable) {
+                    tally.failureCount++;
+                    tally.errors.add(result.getErrorCode(), "Failed to send push notification to device " + result.getRecipient() + ": " + result.getErrorMessage());
+                    savePushLog(request, result);
+                    listener.onDelivery(result);
+                }
+            }
+        }
+        return tally;
+    }
+
+    private boolean schedulePushRetry(PushNotificationRequest request, List<DeliveryResult> failed, int failedAttempt,
+                                      DeliveryListener listener) {
+        List<String> deviceIds = new ArrayList<>(failed.size());
+        long retryAfter = 0;
+        for (DeliveryResult result : failed) {
+            deviceIds.add(result.getRecipient());
+            retryAfter = Math.max(retryAfter, result.getRetryAfterMillis());
+        }
+        log.warn("Transient FCM failure for {} devices on attempt {}", deviceIds.size(), failedAttempt);
+        return retryScheduler.schedule("push to " + deviceIds.size() + " devices", failedAttempt, retryAfter, () -> {
+            List<DeliveryResult> results;
+            try {
+                results = fcmBatchSender.send(deviceIds, request.getTitle(), request.getDescription(), request.getImageUrl());
+            } catch (Exception e) {
+                // Every device still gets an outcome, so listeners waiting for the retry are not left hanging
+                DeliveryErrorClassifier.Classification failure = DeliveryErrorClassifier.classifyPush(e);
+                log.error("Retry of push to {} devices failed: {}", deviceIds.size(), e.getMessage());
+                results = new ArrayList<>(deviceIds.size());
+                for (String deviceId : deviceIds) {
+                    results.add(failure.isRetryable()
+                            ? DeliveryResult.retryableFailure(deviceId, failure.getErrorCode(), e.getMessage(), failure.getRetryAfterMillis())
+                            : DeliveryResult.failure(deviceId, failure.getErrorCode(), e.getMessage()));
+                }
+            }
+            recordPushResults(request, results, listener, failedAttempt + 1);
+        }, () -> {
+            // Still pending at shutdown: every device keeps its last error as its final outcome
+            for (DeliveryResult result : failed) {
+                DeliveryResult outcome = DeliveryResult.failure(result.getRecipient(), result.getErrorCode(), result.getErrorMessage());
+                savePushLog(request, outcome);
+                listener.onDelivery(outcome);
+            }
+        });
+    }
+
+    private void savePushLog(PushNotificationRequest request, DeliveryResult result) {
+        notificationLogService.savePushLog(
+                result.getRecipient(),
+                request.getTitle(),
+                request.getDescription(),
+                request.getImageUrl(),
+                result.isSuccess(),
+                result.getErrorCode(),
+                result.getErrorMessage()
+        );
+    }
+
+    /**
+     * Per-send counters
+     */
+    private static final class DeliveryTally {
+        private int successCount;
+        private int failureCount;
+        private int retryingCount;
+        private final ErrorSummary errors;
+
+        private DeliveryTally(int maxErrorSamples) {
+            this.errors = new ErrorSummary(maxErrorSamples);
+        }
     }
 
     /**
@@ -192,6 +601,7 @@ public class NotificationService {
                 messageBuilder.putData("image", imageUrl);
             }
 
+            rateLimiterRegistry.push().acquire(1);
             String response = firebaseMessaging.send(messageBuilder.build());
             log.info("Push notification sent successfully to topic: {}, response: {}", topic, response);
             
@@ -204,20 +614,22 @@ public class NotificationService {
     }
 
     /**
-     * Send push notification to a topic asynchronously
+     * Send both email and push notifications
      */
-    public CompletableFuture<NotificationResponse> sendPushNotificationToTopicAsync(String topic, String title, String description, String imageUrl) {
-        return CompletableFuture.supplyAsync(() -> sendPushNotificationToTopic(topic, title, description, imageUrl), executorService);
+    public NotificationResponse sendBothNotifications(EmailNotificationRequest emailRequest, PushNotificationRequest pushRequest) {
+        return sendBothNotifications(emailRequest, pushRequest, DeliveryListener.NONE, DeliveryListener.NONE);
     }
 
     /**
-     * Send both email and push notifications
+     * Send both email and push notifications, reporting each channel's recipients to its own listener.
+     * The result is only successful when neither channel failed as a whole.
      */
-    public NotificationResponse sendBothNotifications(EmailNotificationRequest emailRequest, PushNotificationRequest pushRequest) {
+    public NotificationResponse sendBothNotifications(EmailNotificationRequest emailRequest, PushNotificationRequest pushRequest,
+                                                      DeliveryListener emailListener, DeliveryListener pushListener) {
         log.info("Sending both email and push notifications");
         
-        NotificationResponse emailResponse = sendEmailNotification(emailRequest);
-        NotificationResponse pushResponse = sendPushNotification(pushRequest);
+        NotificationResponse emailResponse = sendEmailNotification(emailRequest, emailListener);
+        NotificationResponse pushResponse = sendPushNotification(pushRequest, pushListener);
         
         int totalSuccess = emailResponse.getSuccessCount() + pushResponse.getSuccessCount();
         int totalFailure = emailResponse.getFailureCount() + pushResponse.getFailureCount();
@@ -225,15 +637,26 @@ public class NotificationService {
         String message = String.format("Notifications sent. Email Success: %d, Email Failed: %d, Push Success: %d, Push Failed: %d",
                 emailResponse.getSuccessCount(), emailResponse.getFailureCount(),
                 pushResponse.getSuccessCount(), pushResponse.getFailureCount());
+        if (!emailResponse.isSuccess() || !pushResponse.isSuccess()) {
+            message = (emailResponse.isSuccess() ? "" : emailResponse.getMessage() + ". ")
+                    + (pushResponse.isSuccess() ? "" : pushResponse.getMessage() + ". ") + message;
+        }
         
-        return new NotificationResponse(true, message, totalSuccess, totalFailure);
+        NotificationResponse response = new NotificationResponse(emailResponse.isSuccess() && pushResponse.isSuccess(),
+                message, totalSuccess, totalFailure, mergeErrors(emailResponse, pushResponse));
+        response.setRetryingCount(emailResponse.getRetryingCount() + pushResponse.getRetryingCount());
+        response.setSkippedCount(emailResponse.getSkippedCount() + pushResponse.getSkippedCount());
+        return response;
     }
 
-    /**
-     * Send both email and push notifications asynchronously
-     */
-    public CompletableFuture<NotificationResponse> sendBothNotificationsAsync(EmailNotificationRequest emailRequest, PushNotificationRequest pushRequest) {
-        return CompletableFuture.supplyAsync(() -> sendBothNotifications(emailRequest, pushRequest), executorService);
+    private ErrorSummary mergeErrors(NotificationResponse... responses) {
+        ErrorSummary merged = new ErrorSummary(maxErrorSamples);
+        for (NotificationResponse response : responses) {
+            if (response.getData() instanceof ErrorSummary errors) {
+                merged.merge(errors);
+            }
+        }
+        return merged.isEmpty() ? null : merged;
     }
 
     /**
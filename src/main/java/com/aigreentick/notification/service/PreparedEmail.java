@@ -0,0 +1,109 @@
+package com.aigreentick.notification.service;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.SharedByteArrayInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An email whose subject, Cc, headers and body are encoded once.
+ *
+ * <p>Each recipient's message is parsed from the shared encoded bytes, so the content is neither copied nor
+ * encoded again; only the To, Message-ID and Date headers are set per message, so a message sent late in a
+ * long send or on a retry is dated when it actually goes out.
+ */
+public final class PreparedEmail {
+
+    private static final String[] PER_RECIPIENT_HEADERS = {"To", "Message-ID", "Date"};
+
+    // Resolving the local address may involve a host name lookup, so it is done once
+    private static volatile String cachedMessageIdDomain;
+
+    private final Session session;
+    private final byte[] encoded;
+    private final String messageIdDomain;
+
+    private PreparedEmail(Session session, byte[] encoded, String messageIdDomain) {
+        this.session = session;
+        this.encoded = encoded;
+        this.messageIdDomain = messageIdDomain;
+    }
+
+    /**
+     * Encode a plain-text message without recipients
+     *
+     * @param blank empty message from the mail sender, which supplies the session
+     */
+    public static PreparedEmail prepare(MimeMessage blank, String subject, String body, List<String> cc) throws MessagingException {
+        if (cc != null && !cc.isEmpty()) {
+            blank.setRecipients(Message.RecipientType.CC, InternetAddress.parse(String.join(",", cc)));
+        }
+        blank.setSubject(subject, "UTF-8");
+        blank.setText(body, "UTF-8");
+        blank.saveChanges();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body != null ? body.length() + 512 : 512);
+        try {
+            blank.writeTo(out, PER_RECIPIENT_HEADERS);
+        } catch (IOException e) {
+            throw new MessagingException("Failed to encode email", e);
+        }
+        return new PreparedEmail(blank.getSession(), out.toByteArray(), messageIdDomain(blank.getSession()));
+    }
+
+    /**
+     * Message addressed to one recipient, sharing the encoded content
+     */
+    public MimeMessage forRecipient(String to) throws MessagingException {
+        MimeMessage message = new MimeMessage(session, new SharedByteArrayInputStream(encoded));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setHeader("Message-ID", "<" + UUID.randomUUID() + "@" + messageIdDomain + ">");
+        message.setSentDate(new Date());
+        return message;
+    }
+
+    /**
+     * Message for a multi-recipient envelope. The recipients are only given to the transport,
+     * so none of them can see the others.
+     */
+    public MimeMessage forUndisclosedRecipients() throws MessagingException {
+        MimeMessage message = new MimeMessage(session, new SharedByteArrayInputStream(encoded));
+        message.setHeader("To", "undisclosed-recipients:;");
+        message.setHeader("Message-ID", "<" + UUID.randomUUID() + "@" + messageIdDomain + ">");
+        message.setSentDate(new Date());
+        return message;
+    }
+
+    private static String messageIdDomain(Session session) {
+        String domain = cachedMessageIdDomain;
+        if (domain == null) {
+            domain = resolveMessageIdDomain(session);
+            cachedMessageIdDomain = domain;
+        }
+        return domain;
+    }
+
+    private static String resolveMessageIdDomain(Session session) {
+        try {
+            InternetAddress local = InternetAddress.getLocalAddress(session);
+            if (local != null) {
+                String address = local.getAddress();
+                int at = address.lastIndexOf('@');
+                if (at >= 0 && at < address.length() - 1) {
+                    return address.substring(at + 1);
+                }
+            }
+        } catch (Exception ignored) {
+            // Fall through to the default domain
+        }
+        return "localhost";
+    }
+}
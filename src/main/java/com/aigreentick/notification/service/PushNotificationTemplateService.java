@@ -3,6 +3,7 @@ package com.aigreentick.notification.service;
 import com.aigreentick.notification.dto.PushNotificationTemplateRequest;
 import com.aigreentick.notification.dto.PushNotificationTemplateResponse;
 import com.aigreentick.notification.dto.PushNotificationTemplateUpdateRequest;
+import com.aigreentick.notification.dto.TemplateStatistics;
 import com.aigreentick.notification.entity.PushNotificationTemplate;
 import com.aigreentick.notification.exception.PushNotificationTemplateNotFoundException;
 import com.aigreentick.notification.exception.PushNotificationTemplateAlreadyExistsException;
@@ -24,6 +25,8 @@ import java.util.stream.Collectors;
 public class PushNotificationTemplateService {
 
     private final PushNotificationTemplateRepository pushNotificationTemplateRepository;
+    private final ActiveTemplateCache<PushNotificationTemplate> pushNotificationTemplateCache;
+    private final TemplateStatisticsCache<PushNotificationTemplate> pushNotificationTemplateStatistics;
 
     /**
      * Create a new push notification template
@@ -46,6 +49,8 @@ public class PushNotificationTemplateService {
         template.setModifiedBy(request.getModifiedBy());
 
         PushNotificationTemplate savedTemplate = pushNotificationTemplateRepository.save(template);
+        pushNotificationTemplateCache.update(savedTemplate);
+        pushNotificationTemplateStatistics.added(savedTemplate);
         log.info("Successfully created push notification template with ID: {}", savedTemplate.getId());
         
         return new PushNotificationTemplateResponse(savedTemplate);
@@ -85,12 +90,12 @@ public class PushNotificationTemplateService {
     }
 
     /**
-     * Get push notification template by title
+     * Get push notification template by title; active templates are served from the in-memory cache
      */
     @Transactional(readOnly = true)
     public PushNotificationTemplateResponse getTemplateByTitle(String title) {
-        log.info("Fetching push notification template with title: {}", title);
-        PushNotificationTemplate template = pushNotificationTemplateRepository.findByTitleIgnoreCase(title)
+        log.debug("Fetching push notification template with title: {}", title);
+        PushNotificationTemplate template = pushNotificationTemplateCache.get(title)
                 .orElseThrow(() -> new PushNotificationTemplateNotFoundException("Push notification template with title '" + title + "' not found"));
         return new PushNotificationTemplateResponse(template);
     }
@@ -175,6 +180,7 @@ public class PushNotificationTemplateService {
         
         PushNotificationTemplate template = pushNotificationTemplateRepository.findById(id)
                 .orElseThrow(() -> new PushNotificationTemplateNotFoundException("Push notification template with ID " + id + " not found"));
+        TemplateStatisticsCache.Facts before = pushNotificationTemplateStatistics.factsOf(template);
 
         // Check if new title conflicts with existing template (excluding current template)
         if (!template.getTitle().equalsIgnoreCase(request.getTitle()) && 
@@ -192,6 +198,8 @@ public class PushNotificationTemplateService {
         }
 
         PushNotificationTemplate updatedTemplate = pushNotificationTemplateRepository.save(template);
+        pushNotificationTemplateCache.update(updatedTemplate);
+        pushNotificationTemplateStatistics.changed(before, updatedTemplate);
         log.info("Successfully updated push notification template with ID: {}", updatedTemplate.getId());
         
         return new PushNotificationTemplateResponse(updatedTemplate);
@@ -205,11 +213,14 @@ public class PushNotificationTemplateService {
         
         PushNotificationTemplate template = pushNotificationTemplateRepository.findById(id)
                 .orElseThrow(() -> new PushNotificationTemplateNotFoundException("Push notification template with ID " + id + " not found"));
+        TemplateStatisticsCache.Facts before = pushNotificationTemplateStatistics.factsOf(template);
         
         template.setIsActive(true);
         template.setModifiedBy(modifiedBy);
         
         PushNotificationTemplate updatedTemplate = pushNotificationTemplateRepository.save(template);
+        pushNotificationTemplateCache.update(updatedTemplate);
+        pushNotificationTemplateStatistics.changed(before, updatedTemplate);
         log.info("Successfully activated push notification template with ID: {}", updatedTemplate.getId());
         
         return new PushNotificationTemplateResponse(updatedTemplate);
@@ -223,11 +234,14 @@ public class PushNotificationTemplateService {
         
         PushNotificationTemplate template = pushNotificationTemplateRepository.findById(id)
                 .orElseThrow(() -> new PushNotificationTemplateNotFoundException("Push notification template with ID " + id + " not found"));
+        TemplateStatisticsCache.Facts before = pushNotificationTemplateStatistics.factsOf(template);
         
         template.setIsActive(false);
         template.setModifiedBy(modifiedBy);
         
         PushNotificationTemplate updatedTemplate = pushNotificationTemplateRepository.save(template);
+        pushNotificationTemplateCache.update(updatedTemplate);
+        pushNotificationTemplateStatistics.changed(before, updatedTemplate);
         log.info("Successfully deactivated push notification template with ID: {}", updatedTemplate.getId());
         
         return new PushNotificationTemplateResponse(updatedTemplate);
@@ -239,44 +253,21 @@ public class PushNotificationTemplateService {
     public void deleteTemplate(String id) {
         log.info("Deleting push notification template with ID: {}", id);
         
-        if (!pushNotificationTemplateRepository.existsById(id)) {
-            throw new PushNotificationTemplateNotFoundException("Push notification template with ID " + id + " not found");
-        }
+        PushNotificationTemplate template = pushNotificationTemplateRepository.findById(id)
+                .orElseThrow(() -> new PushNotificationTemplateNotFoundException("Push notification template with ID " + id + " not found"));
         
         pushNotificationTemplateRepository.deleteById(id);
+        pushNotificationTemplateStatistics.removed(template);
+        pushNotificationTemplateCache.remove(id);
         log.info("Successfully deleted push notification template with ID: {}", id);
     }
 
     /**
-     * Get template statistics
+     * Get template statistics, counted in one aggregation and cached briefly
      */
     @Transactional(readOnly = true)
     public TemplateStatistics getTemplateStatistics() {
         log.info("Fetching push notification template statistics");
-        
-        long totalTemplates = pushNotificationTemplateRepository.count();
-        long activeTemplates = pushNotificationTemplateRepository.countByIsActiveTrue();
-        long inactiveTemplates = pushNotificationTemplateRepository.countByIsActiveFalse();
-        
-        return new TemplateStatistics(totalTemplates, activeTemplates, inactiveTemplates);
-    }
-
-    /**
-     * Inner class for template statistics
-     */
-    public static class TemplateStatistics {
-        private final long totalTemplates;
-        private final long activeTemplates;
-        private final long inactiveTemplates;
-
-        public TemplateStatistics(long totalTemplates, long activeTemplates, long inactiveTemplates) {
-            this.totalTemplates = totalTemplates;
-            this.activeTemplates = activeTemplates;
-            this.inactiveTemplates = inactiveTemplates;
-        }
-
-        public long getTotalTemplates() { return totalTemplates; }
-        public long getActiveTemplates() { return activeTemplates; }
-        public long getInactiveTemplates() { return inactiveTemplates; }
+        return pushNotificationTemplateStatistics.get();
     }
 }
@@ -0,0 +1,62 @@
+package com.aigreentick.notification.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one token bucket per channel and sending credential.
+ * Every credential of a channel gets the channel's configured limits.
+ */
+public class RateLimiterRegistry {
+
+    public enum Channel {
+        EMAIL,
+        PUSH
+    }
+
+    public static final class Limits {
+        private final double permitsPerSecond;
+        private final int burst;
+        private final long maxWaitMillis;
+
+        public Limits(double permitsPerSecond, int burst, long maxWaitMillis) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+    }
+
+    private final Map<Channel, Limits> limits;
+    private final Map<Channel, String> defaultCredentials;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiterRegistry(Map<Channel, Limits> limits, Map<Channel, String> defaultCredentials) {
+        this.limits = limits;
+        this.defaultCredentials = defaultCredentials;
+    }
+
+    /**
+     * Bucket for a channel and credential, e.g. an SMTP username or a Firebase project ID
+     */
+    public TokenBucket bucket(Channel channel, String credential) {
+        String key = channel.name() + ":" + credential;
+        return buckets.computeIfAbsent(key, k -> {
+            Limits channelLimits = limits.get(channel);
+            return new TokenBucket(k, channelLimits.permitsPerSecond, channelLimits.burst, channelLimits.maxWaitMillis);
+        });
+    }
+
+    /**
+     * Bucket for the configured SMTP account
+     */
+    public TokenBucket email() {
+        return bucket(Channel.EMAIL, defaultCredentials.get(Channel.EMAIL));
+    }
+
+    /**
+     * Bucket for the configured Firebase project
+     */
+    public TokenBucket push() {
+        return bucket(Channel.PUSH, defaultCredentials.get(Channel.PUSH));
+    }
+}
@@ -0,0 +1,170 @@
+package com.aigreentick.notification.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads recipients one line at a time from an NDJSON or CSV stream, so only the current batch is held in memory.
+ *
+ * <p>NDJSON lines may be a JSON string or an object carrying one of the recipient field names.
+ * CSV input may start with a header row naming the recipient column; without one the first column is used.
+ */
+public final class RecipientReader implements Closeable {
+
+    public enum Format {
+        NDJSON,
+        CSV;
+
+        /**
+         * Pick a format from the upload's content type, falling back to its file name; defaults to NDJSON
+         */
+        public static Format detect(String contentType, String filename) {
+            String type = contentType == null ? "" : contentType.toLowerCase();
+            String name = filename == null ? "" : filename.toLowerCase();
+            if (type.contains("csv") || name.endsWith(".csv")) {
+                return CSV;
+            }
+            return NDJSON;
+        }
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final List<String> fieldNames;
+    private final ObjectMapper objectMapper;
+
+    private int csvColumn = 0;
+    private boolean firstLine = true;
+    private long lineNumber;
+    private long invalidCount;
+    private String lastInvalid;
+
+    public RecipientReader(InputStream in, Format format, List<String> fieldNames, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.format = format;
+        this.fieldNames = fieldNames;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Read up to max recipients; an empty list means the stream is exhausted.
+     * Lines that cannot be parsed are skipped and counted as invalid.
+     */
+    public List<String> nextBatch(int max) throws IOException {
+        List<String> batch = new ArrayList<>(max);
+        String line;
+        while (batch.size() < max && (line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String recipient = format == Format.CSV ? parseCsvLine(trimmed) : parseJsonLine(trimmed);
+            firstLine = false;
+            if (recipient != null && !recipient.isEmpty()) {
+                batch.add(recipient);
+            }
+        }
+        return batch;
+    }
+
+    public long getInvalidCount() {
+        return invalidCount;
+    }
+
+    /**
+     * Description of the most recent unparseable line, or null
+     */
+    public String getLastInvalid() {
+        return lastInvalid;
+    }
+
+    private String parseJsonLine(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (node.isTextual()) {
+                return node.asText().trim();
+            }
+            if (node.isObject()) {
+                for (String field : fieldNames) {
+                    JsonNode value = node.get(field);
+                    if (value != null && value.isTextual()) {
+                        return value.asText().trim();
+                    }
+                }
+            }
+            return invalid("no recipient field");
+        } catch (IOException e) {
+            return invalid("malformed JSON");
+        }
+    }
+
+    private String parseCsvLine(String line) {
+        List<String> cells = splitCsv(line);
+        if (firstLine) {
+            for (int i = 0; i < cells.size(); i++) {
+                for (String field : fieldNames) {
+                    if (field.equalsIgnoreCase(cells.get(i))) {
+                        csvColumn = i;
+                        return null;
+                    }
+                }
+            }
+        }
+        if (csvColumn >= cells.size()) {
+            return invalid("missing column " + (csvColumn + 1));
+        }
+        return cells.get(csvColumn);
+    }
+
+    private String invalid(String reason) {
+        invalidCount++;
+        lastInvalid = "Line " + lineNumber + ": " + reason;
+        return null;
+    }
+
+    /**
+     * Split one CSV record, honouring double-quoted cells and "" escapes
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
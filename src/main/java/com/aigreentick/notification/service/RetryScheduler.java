@@ -0,0 +1,132 @@
+package com.aigreentick.notification.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules retries of transient delivery failures with jittered exponential backoff.
+ * Retries run on the scheduler's own threads, so the sending thread never waits for a backoff.
+ * Retries still waiting for their backoff at shutdown are not run; each is recorded as a final failure instead.
+ */
+@Component
+@Slf4j
+public class RetryScheduler {
+
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final ScheduledExecutorService scheduler;
+    private final Set<PendingRetry> pending = ConcurrentHashMap.newKeySet();
+
+    public RetryScheduler(@Value("${notification.retry.max-attempts:4}") int maxAttempts,
+                          @Value("${notification.retry.initial-backoff-ms:1000}") long initialBackoffMs,
+                          @Value("${notification.retry.max-backoff-ms:60000}") long maxBackoffMs,
+                          @Value("${notification.retry.threads:2}") int threads) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "notification-retry-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether a delivery that just failed on the given attempt may be tried again
+     */
+    public boolean canRetry(int failedAttempt) {
+        return failedAttempt < maxAttempts && !scheduler.isShutdown();
+    }
+
+    /**
+     * Schedule the next attempt after a failure.
+     *
+     * @param failedAttempt    attempt number that just failed, starting at 1
+     * @param retryAfterMillis provider hint; the delay is never shorter than this
+     * @param abandon          records the failure as final if the retry has not started when the scheduler shuts down
+     * @return false if no retry was scheduled and the failure should be treated as final
+     */
+    public boolean schedule(String description, int failedAttempt, long retryAfterMillis, Runnable retry, Runnable abandon) {
+        if (!canRetry(failedAttempt)) {
+            return false;
+        }
+        long delay = Math.max(retryAfterMillis, backoff(failedAttempt));
+        PendingRetry task = new PendingRetry(description, abandon);
+        pending.add(task);
+        try {
+            scheduler.schedule(() -> {
+                if (!pending.remove(task)) {
+                    // Abandoned by shutdown
+                    return;
+                }
+                try {
+                    retry.run();
+                } catch (Exception e) {
+                    log.error("Retry of {} failed unexpectedly: {}", description, e.getMessage(), e);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pending.remove(task);
+            return false;
+        }
+        log.info("Scheduled retry {} of {} in {} ms", failedAttempt + 1, description, delay);
+        return true;
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the delay is fixed, the other half random
+     */
+    private long backoff(int failedAttempt) {
+        long exponential = initialBackoffMs << Math.min(failedAttempt - 1, 30);
+        long capped = Math.min(maxBackoffMs, exponential < 0 ? maxBackoffMs : exponential);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        int abandoned = 0;
+        for (PendingRetry task : pending) {
+            // A retry that started in the meantime has removed itself
+            if (!pending.remove(task)) {
+                continue;
+            }
+            abandoned++;
+            try {
+                task.abandon.run();
+            } catch (Exception e) {
+                log.error("Failed to record abandoned retry of {}: {}", task.description, e.getMessage(), e);
+            }
+        }
+        if (abandoned > 0) {
+            log.warn("Abandoned {} pending retries on shutdown and recorded them as failed", abandoned);
+        }
+    }
+
+    /**
+     * Compared by identity, so two retries with the same description are tracked separately
+     */
+    private static final class PendingRetry {
+        private final String description;
+        private final Runnable abandon;
+
+        private PendingRetry(String description, Runnable abandon) {
+            this.description = description;
+            this.abandon = abandon;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.aigreentick.notification.service;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.util.StringUtils;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of connected and authenticated SMTP transports.
+ * A send loop borrows a {@link Lease} once and pushes all of its messages through the same connection,
+ * so the TCP connect, STARTTLS handshake and AUTH are paid once per connection instead of once per message.
+ */
+@Slf4j
+public class SmtpTransportPool implements AutoCloseable {
+
+    private final JavaMailSenderImpl mailSender;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public SmtpTransportPool(JavaMailSenderImpl mailSender, int poolSize, int maxMessagesPerConnection,
+                             long idleTimeoutMillis, long borrowTimeoutMillis) {
+        this.mailSender = mailSender;
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(Math.max(1, poolSize), true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "smtp-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection slot. The connection itself is opened lazily on the first send.
+     */
+    public Lease borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("SMTP transport pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection from the pool");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        return new Lease(takeIdle());
+    }
+
+    private PooledTransport takeIdle() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (!pooled.isExpired(System.currentTimeMillis())) {
+                return pooled;
+            }
+            closeQuietly(pooled);
+        }
+        return null;
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        String protocol = mailSender.getProtocol();
+        if (protocol == null) {
+            protocol = mailSender.getSession().getProperty("mail.transport.protocol");
+        }
+        Transport transport = mailSender.getSession().getTransport(protocol != null ? protocol : "smtp");
+
+        String username = StringUtils.hasLength(mailSender.getUsername()) ? mailSender.getUsername() : null;
+        String password = StringUtils.hasLength(mailSender.getPassword()) ? mailSender.getPassword() : null;
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        log.debug("Opened pooled SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return new PooledTransport(transport);
+    }
+
+    private void giveBack(PooledTransport pooled) {
+        if (pooled == null) {
+            return;
+        }
+        if (closed || pooled.messagesSent >= maxMessagesPerConnection || !pooled.transport.isConnected()) {
+            closeQuietly(pooled);
+            return;
+        }
+        pooled.lastUsedAt = System.currentTimeMillis();
+        idle.offerFirst(pooled);
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (PooledTransport pooled : idle) {
+            if (pooled.isExpired(now) && idle.remove(pooled)) {
+                log.debug("Evicting idle SMTP connection after {} messages", pooled.messagesSent);
+                closeQuietly(pooled);
+            }
+        }
+    }
+
+    private void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    /**
+     * Exclusive use of one pooled connection by a single send loop. Not thread-safe.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private PooledTransport current;
+        private boolean released;
+
+        private Lease(PooledTransport current) {
+            this.current = current;
+        }
+
+        /**
+         * Send a message to the recipients already set on it
+         */
+        public void send(MimeMessage message) throws MessagingException {
+            send(message, message.getAllRecipients());
+        }
+
+        /**
+         * Send a message to an explicit envelope recipient list.
+         * A previously used connection that turns out to be dead is replaced once.
+         */
+        public void send(MimeMessage message, Address[] recipients) throws MessagingException {
+            boolean reused = current != null && current.messagesSent > 0;
+            try {
+                doSend(message, recipients);
+            } catch (SendFailedException e) {
+                throw e;
+            } catch (MessagingException e) {
+                if (!reused) {
+                    throw e;
+                }
+                log.debug("Pooled SMTP connection failed, reconnecting: {}", e.getMessage());
+                doSend(message, recipients);
+            }
+        }
+
+        private void doSend(MimeMessage message, Address[] recipients) throws MessagingException {
+            if (current == null) {
+                current = connect();
+            }
+            try {
+                current.transport.sendMessage(message, recipients);
+                current.messagesSent++;
+            } catch (SendFailedException e) {
+                // Rejected recipients leave the connection usable
+                current.messagesSent++;
+                throw e;
+            } catch (MessagingException e) {
+                closeQuietly(current);
+                current = null;
+                throw e;
+            }
+            if (current.messagesSent >= maxMessagesPerConnection) {
+                closeQuietly(current);
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            giveBack(current);
+            current = null;
+            permits.release();
+        }
+    }
+
+    private final class PooledTransport {
+        private final Transport transport;
+        private int messagesSent;
+        private long lastUsedAt = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private boolean isExpired(long now) {
+            return now - lastUsedAt > idleTimeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.entity.EmailTemplate;
+import com.aigreentick.notification.entity.PushNotificationTemplate;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps every node's template caches in step with template writes made on other nodes.
+ *
+ * <p>Changes to email_templates and push_notification_templates are read from a Mongo change stream and applied
+ * to the active-template caches and the compiled email templates. Every time the stream is opened, on start and after a failure,
+ * the caches are fully reloaded once the stream is open, so no change falls between the reload and the stream and no
+ * resume position has to be kept. A standalone mongod has no change streams; there the listener polls for templates
+ * modified since its last check, and deletions are picked up by the caches' periodic full reload.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TemplateChangeListener {
+
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+
+    private final MongoTemplate mongoTemplate;
+    private final ActiveTemplateCache<EmailTemplate> emailTemplateCache;
+    private final ActiveTemplateCache<PushNotificationTemplate> pushNotificationTemplateCache;
+    private final CompiledTemplateCache compiledTemplateCache;
+
+    @Value("${notification.template-sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.template-sync.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "template-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                watch();
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                    log.info("Change streams are not available, polling for template changes every {} ms", pollIntervalMs);
+                    poll();
+                    return;
+                }
+                log.warn("Template change stream failed: {}", e.getMessage());
+                pause();
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Template change stream failed: {}", e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private void watch() {
+        List<String> collections = List.of(
+                mongoTemplate.getCollectionName(EmailTemplate.class),
+                mongoTemplate.getCollectionName(PushNotificationTemplate.class));
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                .watch(List.of(Aggregates.match(Filters.in("ns.coll", collections))))
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            // Changes made before the stream opened are covered by the reload, later ones by the stream
+            reloadCaches();
+            log.info("Watching template collections for changes");
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change == null) {
+                    continue;
+                }
+                apply(change);
+                if (change.getOperationType() == OperationType.INVALIDATE) {
+                    // An invalidated stream cannot be continued; open a new one
+                    return;
+                }
+            }
+        }
+    }
+
+    private void apply(ChangeStreamDocument<Document> change) {
+        if (change.getNamespace() == null || change.getOperationType() == null) {
+            return;
+        }
+        boolean email = mongoTemplate.getCollectionName(EmailTemplate.class).equals(change.getNamespace().getCollectionName());
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                Document document = change.getFullDocument();
+                if (document == null) {
+                    // Deleted again before the lookup; the delete event follows
+                    return;
+                }
+                if (email) {
+                    emailTemplateCache.update(mongoTemplate.getConverter().read(EmailTemplate.class, document));
+                } else {
+                    pushNotificationTemplateCache.update(mongoTemplate.getConverter().read(PushNotificationTemplate.class, document));
+                }
+            }
+            case DELETE -> {
+                String id = idOf(change.getDocumentKey());
+                if (id == null) {
+                    return;
+                }
+                if (email) {
+                    emailTemplateCache.remove(id);
+                    compiledTemplateCache.evictEmail(id);
+                } else {
+                    pushNotificationTemplateCache.remove(id);
+                }
+            }
+            default -> {
+                // drop, rename and invalidate affect the whole collection
+                reloadCaches();
+            }
+        }
+    }
+
+    /**
+     * Fallback for deployments without a replica set
+     */
+    private void poll() {
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+        reloadCaches();
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                LocalDateTime checkedAt = LocalDateTime.now();
+                Query query = new Query(Criteria.where("modifiedAt").gte(since)).with(Sort.by("modifiedAt"));
+                mongoTemplate.find(query, EmailTemplate.class).forEach(emailTemplateCache::update);
+                mongoTemplate.find(query, PushNotificationTemplate.class).forEach(pushNotificationTemplateCache::update);
+                since = checkedAt.minusSeconds(1);
+            } catch (Exception e) {
+                log.warn("Failed to poll for template changes: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void reloadCaches() {
+        emailTemplateCache.refresh();
+        pushNotificationTemplateCache.refresh();
+    }
+
+    private static String idOf(BsonDocument documentKey) {
+        if (documentKey == null) {
+            return null;
+        }
+        BsonValue id = documentKey.get("_id");
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.TemplateStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Template counts by status, creator and image presence, computed with a single $facet aggregation
+ * and kept for ttl-ms.
+ *
+ * <p>Templates created, changed or deleted on this instance are applied to the cached counts as they happen.
+ * Changes made by other instances show up when the counts are next computed, at most ttl-ms later.
+ * A computation that overlaps a local change is returned but not cached, since it may have missed the change.
+ */
+@Slf4j
+public class TemplateStatisticsCache<T> {
+
+    private static final String UNKNOWN_CREATOR = "unknown";
+
+    private final String kind;
+    private final MongoTemplate mongoTemplate;
+    private final Class<T> type;
+    private final Predicate<T> isActive;
+    private final Function<T, String> createdByOf;
+    private final Function<T, String> imageUrlOf;
+    private final long ttlMs;
+
+    private TemplateStatistics statistics;
+    private long expiresAt;
+    private long generation;
+
+    /**
+     * @param imageUrlOf null for template types without an image
+     */
+    public TemplateStatisticsCache(String kind,
+                                   MongoTemplate mongoTemplate,
+                                   Class<T> type,
+                                   Predicate<T> isActive,
+                                   Function<T, String> createdByOf,
+                                   Function<T, String> imageUrlOf,
+                                   long ttlMs) {
+        this.kind = kind;
+        this.mongoTemplate = mongoTemplate;
+        this.type = type;
+        this.isActive = isActive;
+        this.createdByOf = createdByOf;
+        this.imageUrlOf = imageUrlOf;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * What one template adds to the counts
+     */
+    public record Facts(boolean active, String createdBy, boolean hasImage) {
+    }
+
+    public TemplateStatistics get() {
+        long loadedGeneration;
+        synchronized (this) {
+            if (statistics != null && System.currentTimeMillis() < expiresAt) {
+                return copy(statistics);
+            }
+            loadedGeneration = generation;
+        }
+        TemplateStatistics loaded = load();
+        synchronized (this) {
+            if (generation == loadedGeneration) {
+                statistics = loaded;
+                expiresAt = System.currentTimeMillis() + ttlMs;
+            }
+        }
+        return copy(loaded);
+    }
+
+    /**
+     * Capture a template's contribution before it is modified in place
+     */
+    public Facts factsOf(T template) {
+        return new Facts(isActive.test(template), creatorOf(createdByOf.apply(template)),
+                imageUrlOf != null && imageUrlOf.apply(template) != null);
+    }
+
+    public void added(T template) {
+        apply(null, factsOf(template));
+    }
+
+    public void changed(Facts before, T template) {
+        apply(before, factsOf(template));
+    }
+
+    public void removed(T template) {
+        apply(factsOf(template), null);
+    }
+
+    private synchronized void apply(Facts removed, Facts added) {
+        generation++;
+        if (statistics == null || Objects.equals(removed, added)) {
+            return;
+        }
+        if (removed != null) {
+            adjust(removed, -1);
+        }
+        if (added != null) {
+            adjust(added, 1);
+        }
+    }
+
+    private void adjust(Facts facts, long delta) {
+        statistics.setTotalTemplates(statistics.getTotalTemplates() + delta);
+        if (facts.active()) {
+            statistics.setActiveTemplates(statistics.getActiveTemplates() + delta);
+        } else {
+            statistics.setInactiveTemplates(statistics.getInactiveTemplates() + delta);
+        }
+        Map<String, Long> byCreatedBy = statistics.getTemplatesByCreatedBy();
+        if (byCreatedBy.merge(facts.createdBy(), delta, Long::sum) == 0) {
+            byCreatedBy.remove(facts.createdBy());
+        }
+        if (imageUrlOf != null) {
+            if (facts.hasImage()) {
+                statistics.setTemplatesWithImage(statistics.getTemplatesWithImage() + delta);
+            } else {
+                statistics.setTemplatesWithoutImage(statistics.getTemplatesWithoutImage() + delta);
+            }
+        }
+    }
+
+    /**
+     * Count everything in one round trip; each facet groups the whole collection by one field
+     */
+    private TemplateStatistics load() {
+        log.debug("Computing {} template statistics", kind);
+        Document facets = new Document("status", List.of(countBy("$isActive")))
+                .append("createdBy", List.of(countBy("$createdBy")));
+        if (imageUrlOf != null) {
+            // A missing imageUrl counts as no image, like a null one
+            facets.append("image", List.of(countBy(new Document("$ne",
+                    Arrays.asList(new Document("$ifNull", Arrays.asList("$imageUrl", null)), null)))));
+        }
+        Document result = mongoTemplate.getCollection(mongoTemplate.getCollectionName(type))
+                .aggregate(List.of(new Document("$facet", facets)))
+                .first();
+
+        TemplateStatistics loaded = new TemplateStatistics(0, 0, 0, new TreeMap<>(), null, null);
+        for (Document group : result.getList("status", Document.class)) {
+            long count = countOf(group);
+            loaded.setTotalTemplates(loaded.getTotalTemplates() + count);
+            // Templates without a status count toward the total only
+            if (Boolean.TRUE.equals(group.get("_id"))) {
+                loaded.setActiveTemplates(count);
+            } else if (Boolean.FALSE.equals(group.get("_id"))) {
+                loaded.setInactiveTemplates(count);
+            }
+        }
+        for (Document group : result.getList("createdBy", Document.class)) {
+            loaded.getTemplatesByCreatedBy().merge(creatorOf(group.getString("_id")), countOf(group), Long::sum);
+        }
+        if (imageUrlOf != null) {
+            loaded.setTemplatesWithImage(0L);
+            loaded.setTemplatesWithoutImage(0L);
+            for (Document group : result.getList("image", Document.class)) {
+                if (Boolean.TRUE.equals(group.get("_id"))) {
+                    loaded.setTemplatesWithImage(countOf(group));
+                } else {
+                    loaded.setTemplatesWithoutImage(countOf(group));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static Document countBy(Object key) {
+        return new Document("$group", new Document("_id", key).append("count", new Document("$sum", 1)));
+    }
+
+    private static long countOf(Document group) {
+        return ((Number) group.get("count")).longValue();
+    }
+
+    private static String creatorOf(String createdBy) {
+        return createdBy != null ? createdBy : UNKNOWN_CREATOR;
+    }
+
+    private static TemplateStatistics copy(TemplateStatistics statistics) {
+        return new TemplateStatistics(statistics.getTotalTemplates(), statistics.getActiveTemplates(),
+                statistics.getInactiveTemplates(), new TreeMap<>(statistics.getTemplatesByCreatedBy()),
+                statistics.getTemplatesWithImage(), statistics.getTemplatesWithoutImage());
+    }
+}
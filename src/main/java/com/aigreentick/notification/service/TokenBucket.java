@@ -0,0 +1,89 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.exception.RateLimitExceededException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm.
+ * The only state is the theoretical arrival time of the next permit, updated with a CAS,
+ * so callers reserve permits without locking and then sleep outside of any critical section.
+ */
+public final class TokenBucket {
+
+    private final String name;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long maxWaitNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param permitsPerSecond sustained rate; zero or less disables limiting
+     * @param burst            permits that may be taken at once after an idle period
+     * @param maxWaitMillis    longest a caller may be delayed before being rejected; zero rejects instead of waiting
+     */
+    public TokenBucket(String name, double permitsPerSecond, int burst, long maxWaitMillis) {
+        this.name = name;
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+    }
+
+    /**
+     * Take permits, waiting up to the configured maximum
+     *
+     * @throws RateLimitExceededException if the permits would not be available within the maximum wait
+     */
+    public void acquire(int permits) {
+        long waitNanos = reserve(permits, maxWaitNanos);
+        if (waitNanos < 0) {
+            throw new RateLimitExceededException("Rate limit exceeded for " + name);
+        }
+        long deadline = System.nanoTime() + waitNanos;
+        long remaining = waitNanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new RateLimitExceededException("Interrupted while waiting for rate limit " + name);
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Take permits only if they are available right now
+     */
+    public boolean tryAcquire(int permits) {
+        return reserve(permits, 0) == 0;
+    }
+
+    public boolean isUnlimited() {
+        return intervalNanos == 0;
+    }
+
+    /**
+     * Reserve permits and return how long the caller must wait for them, or -1 if that exceeds maxWait
+     */
+    private long reserve(int permits, long maxWait) {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        long cost = intervalNanos * permits;
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long base = arrival - now > 0 ? arrival : now;
+            long next = base + cost;
+            long wait = next - now - burstNanos;
+            if (wait > maxWait) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.aigreentick.notification.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times {@link CompiledTemplate} rendering against the regex substitution it replaced.
+ * Not part of mvn test; run with mvn test -Pbenchmark. It reports the timings and only fails if the outputs differ.
+ */
+class CompiledTemplateBenchmark {
+
+    private static final int ITERATIONS = 20_000;
+
+    @Test
+    void compiledRenderingAgainstRegexSubstitution() {
+        StringBuilder text = new StringBuilder();
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            text.append("<p>Paragraph ").append(i).append(" for {{ name }} about {{item").append(i).append("}}.</p>\n");
+            values.put("item" + i, "item value " + i);
+        }
+        values.put("name", "Ana");
+        String template = text.toString();
+        CompiledTemplate compiled = CompiledTemplate.compile(template);
+        assertThat(compiled.render(values)).isEqualTo(CompiledTemplateTest.regexRender(template, values));
+
+        // Warm up both so the JIT has compiled them before they are timed
+        time(() -> CompiledTemplateTest.regexRender(template, values));
+        time(() -> compiled.render(values));
+
+        long regexNanos = time(() -> CompiledTemplateTest.regexRender(template, values));
+        long compiledNanos = time(() -> compiled.render(values));
+
+        System.out.printf("%d renders: regex %.1f ms, compiled %.1f ms%n", ITERATIONS, regexNanos / 1e6, compiledNanos / 1e6);
+    }
+
+    private static long time(Render render) {
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            length += render.render().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        // Use the output so the loop cannot be optimised away
+        assertThat(length).isPositive();
+        return elapsed;
+    }
+
+    @FunctionalInterface
+    private interface Render {
+        String render();
+    }
+}
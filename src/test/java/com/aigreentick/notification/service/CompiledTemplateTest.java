@@ -0,0 +1,105 @@
+package com.aigreentick.notification.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks {@link CompiledTemplate} against the regex substitution it replaced.
+ * {@link CompiledTemplateBenchmark} times both.
+ */
+class CompiledTemplateTest {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*([A-Za-z0-9_.-]+)\\s*}}");
+
+    /**
+     * The renderer template sends used before templates were compiled
+     */
+    static String regexRender(String template, Map<String, String> variables) {
+        if (template == null || template.indexOf("{{") < 0) {
+            return template;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder rendered = new StringBuilder(template.length() + 64);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String value = variables.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for template variable '" + name + "'");
+            }
+            matcher.appendReplacement(rendered, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(rendered);
+        return rendered.toString();
+    }
+
+    @Test
+    void rendersLikeRegexSubstitution() {
+        Map<String, String> values = Map.of(
+                "name", "Ana",
+                "order.id", "A-17",
+                "first_name", "Raj",
+                "price", "$5 \\ $1 {{name}}",
+                "empty", "");
+        List<String> templates = List.of(
+                "",
+                "No placeholders at all",
+                "{{name}}",
+                "Hello {{name}}, order {{ order.id }} is ready",
+                "{{name}}{{name}}{{first_name}}",
+                "Costs {{price}} today",
+                "[{{empty}}]",
+                "Braces { only } and }} and {single}",
+                "Trailing {{  first_name\t}}");
+
+        for (String template : templates) {
+            assertThat(CompiledTemplate.compile(template).render(values))
+                    .as(template)
+                    .isEqualTo(regexRender(template, values));
+        }
+    }
+
+    @Test
+    void valuesWithReplacementSyntaxAreInsertedLiterally() {
+        Map<String, String> values = Map.of("amount", "$1.00 \\n ${total} $2");
+
+        String rendered = CompiledTemplate.compile("Pay {{amount}}").render(values);
+
+        assertThat(rendered).isEqualTo("Pay $1.00 \\n ${total} $2").isEqualTo(regexRender("Pay {{amount}}", values));
+    }
+
+    @Test
+    void missingValueFailsLikeRegexSubstitution() {
+        String template = "Hi {{name}}, your code is {{ code }}";
+        Map<String, String> values = Map.of("name", "Ana");
+
+        assertThatThrownBy(() -> regexRender(template, values))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Missing value for template variable 'code'");
+        assertThatThrownBy(() -> CompiledTemplate.compile(template).render(values))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Missing value for template variable 'code'");
+    }
+
+    @Test
+    void malformedPlaceholdersAreRejectedAtCompileTime() {
+        // The regex left these in the output as literal text; compiled templates reject them when saved
+        assertThatThrownBy(() -> CompiledTemplate.compile("Hello {{name"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledTemplate.compile("Hello {{first name}}"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledTemplate.compile("Hello {{}}"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reportsDistinctVariablesInOrder() {
+        assertThat(CompiledTemplate.compile("{{b}} {{a}} {{ b }}").getVariables()).containsExactly("b", "a");
+    }
+}
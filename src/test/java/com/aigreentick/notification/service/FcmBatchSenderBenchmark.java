@@ -0,0 +1,109 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryResult;
+import com.google.api.core.SettableApiFuture;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Times sending one FCM request per token against {@link FcmBatchSender}'s multicast batches, with a
+ * FirebaseMessaging mock that answers every call after a fixed round trip.
+ * Not part of mvn test; run with mvn test -Pbenchmark. It reports the timings and only fails if a send is lost.
+ */
+class FcmBatchSenderBenchmark {
+
+    private static final int DEVICES = 1000;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ScheduledExecutorService network = Executors.newScheduledThreadPool(4);
+    private FirebaseMessaging firebaseMessaging;
+    private FcmBatchSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        firebaseMessaging = mock(FirebaseMessaging.class);
+        when(firebaseMessaging.send(any(Message.class))).thenAnswer(invocation -> {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            return "message-id";
+        });
+        when(firebaseMessaging.sendEachForMulticastAsync(any(MulticastMessage.class))).thenAnswer(invocation -> {
+            MulticastMessage message = invocation.getArgument(0);
+            List<?> tokens = (List<?>) ReflectionTestUtils.getField(message, "tokens");
+            BatchResponse response = FcmBatchSenderTest.successes(tokens.size());
+            SettableApiFuture<BatchResponse> future = SettableApiFuture.create();
+            network.schedule(() -> future.set(response), ROUND_TRIP_NANOS, TimeUnit.NANOSECONDS);
+            return future;
+        });
+
+        RateLimiterRegistry rateLimiterRegistry = new RateLimiterRegistry(
+                Map.of(RateLimiterRegistry.Channel.PUSH, new RateLimiterRegistry.Limits(0, 1, 0)),
+                Map.of(RateLimiterRegistry.Channel.PUSH, "test-project"));
+        sender = new FcmBatchSender(firebaseMessaging, rateLimiterRegistry);
+        ReflectionTestUtils.setField(sender, "batchSize", FcmBatchSender.MAX_TOKENS_PER_MULTICAST);
+        ReflectionTestUtils.setField(sender, "maxConcurrentBatches", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        network.shutdownNow();
+    }
+
+    @Test
+    void multicastAgainstOneRequestPerToken() throws Exception {
+        List<String> deviceIds = FcmBatchSenderTest.deviceIds(DEVICES);
+        // Warm up both paths so class loading and mock setup are not measured
+        sendPerToken(deviceIds.subList(0, 50));
+        sender.send(deviceIds.subList(0, 50), "Title", "Body", null);
+
+        long perTokenStart = System.nanoTime();
+        int perTokenDelivered = sendPerToken(deviceIds);
+        long perTokenNanos = System.nanoTime() - perTokenStart;
+
+        long multicastStart = System.nanoTime();
+        List<DeliveryResult> results = sender.send(deviceIds, "Title", "Body", null);
+        long multicastNanos = System.nanoTime() - multicastStart;
+
+        assertThat(perTokenDelivered).isEqualTo(DEVICES);
+        assertThat(results).hasSize(DEVICES).allMatch(DeliveryResult::isSuccess);
+        System.out.printf("%d devices: per-token %.1f ms, multicast %.1f ms%n",
+                DEVICES, perTokenNanos / 1e6, multicastNanos / 1e6);
+    }
+
+    /**
+     * The send loop multicast replaced: one blocking FCM request per device token
+     */
+    private int sendPerToken(List<String> deviceIds) throws Exception {
+        int delivered = 0;
+        for (String deviceId : deviceIds) {
+            Message message = Message.builder()
+                    .setToken(deviceId)
+                    .setNotification(Notification.builder().setTitle("Title").setBody("Body").build())
+                    .putData("title", "Title")
+                    .putData("body", "Body")
+                    .build();
+            if (firebaseMessaging.send(message) != null) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+}
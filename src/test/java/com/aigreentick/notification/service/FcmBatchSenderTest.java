@@ -0,0 +1,131 @@
+package com.aigreentick.notification.service;
+
+import com.aigreentick.notification.dto.DeliveryResult;
+import com.google.api.core.ApiFuture;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks how {@link FcmBatchSender} splits device tokens into multicast batches and how many batches it keeps in
+ * flight. A batch counts as in flight from its sendEachForMulticastAsync call until the sender takes its response.
+ * {@link FcmBatchSenderBenchmark} times multicast against one request per token.
+ */
+class FcmBatchSenderTest {
+
+    private static final int MAX_CONCURRENT_BATCHES = 4;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private FirebaseMessaging firebaseMessaging;
+    private FcmBatchSender sender;
+
+    @BeforeEach
+    void setUp() {
+        firebaseMessaging = mock(FirebaseMessaging.class);
+        when(firebaseMessaging.sendEachForMulticastAsync(any(MulticastMessage.class))).thenAnswer(invocation -> {
+            MulticastMessage message = invocation.getArgument(0);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return taken(successes(tokensOf(message).size()));
+        });
+
+        RateLimiterRegistry rateLimiterRegistry = new RateLimiterRegistry(
+                Map.of(RateLimiterRegistry.Channel.PUSH, new RateLimiterRegistry.Limits(0, 1, 0)),
+                Map.of(RateLimiterRegistry.Channel.PUSH, "test-project"));
+        sender = new FcmBatchSender(firebaseMessaging, rateLimiterRegistry);
+        ReflectionTestUtils.setField(sender, "batchSize", FcmBatchSender.MAX_TOKENS_PER_MULTICAST);
+        ReflectionTestUtils.setField(sender, "maxConcurrentBatches", MAX_CONCURRENT_BATCHES);
+    }
+
+    @Test
+    void multicastReturnsOneResultPerDeviceInInputOrder() {
+        List<String> deviceIds = deviceIds(1000);
+
+        List<DeliveryResult> results = sender.send(deviceIds, "Title", "Body", null);
+
+        assertThat(results).extracting(DeliveryResult::getRecipient).containsExactlyElementsOf(deviceIds);
+        assertThat(results).allMatch(DeliveryResult::isSuccess);
+        verify(firebaseMessaging, times(2)).sendEachForMulticastAsync(any(MulticastMessage.class));
+    }
+
+    @Test
+    void sendsOneMulticastPer500Tokens() {
+        List<String> deviceIds = deviceIds(1201);
+
+        List<DeliveryResult> results = sender.send(deviceIds, "Title", "Body", null);
+
+        ArgumentCaptor<MulticastMessage> messages = ArgumentCaptor.forClass(MulticastMessage.class);
+        verify(firebaseMessaging, times(3)).sendEachForMulticastAsync(messages.capture());
+        assertThat(messages.getAllValues()).extracting(message -> tokensOf(message).size()).containsExactly(500, 500, 201);
+        assertThat(results).extracting(DeliveryResult::getRecipient).containsExactlyElementsOf(deviceIds);
+    }
+
+    @Test
+    void keepsAtMostMaxConcurrentBatchesInFlight() {
+        List<String> deviceIds = deviceIds(10 * FcmBatchSender.MAX_TOKENS_PER_MULTICAST + 1);
+
+        List<DeliveryResult> results = sender.send(deviceIds, "Title", "Body", null);
+
+        verify(firebaseMessaging, times(11)).sendEachForMulticastAsync(any(MulticastMessage.class));
+        assertThat(maxInFlight.get()).isEqualTo(MAX_CONCURRENT_BATCHES);
+        assertThat(inFlight.get()).isZero();
+        assertThat(results).hasSize(deviceIds.size());
+    }
+
+    /**
+     * A future whose response is ready, and which stops counting as in flight once the sender takes the response
+     */
+    @SuppressWarnings("unchecked")
+    private ApiFuture<BatchResponse> taken(BatchResponse response) throws Exception {
+        ApiFuture<BatchResponse> future = mock(ApiFuture.class);
+        when(future.get()).thenAnswer(invocation -> {
+            inFlight.decrementAndGet();
+            return response;
+        });
+        return future;
+    }
+
+    private static List<?> tokensOf(MulticastMessage message) {
+        return (List<?>) ReflectionTestUtils.getField(message, "tokens");
+    }
+
+    static BatchResponse successes(int count) {
+        List<SendResponse> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SendResponse response = mock(SendResponse.class);
+            when(response.isSuccessful()).thenReturn(true);
+            when(response.getMessageId()).thenReturn("message-" + i);
+            responses.add(response);
+        }
+        BatchResponse batch = mock(BatchResponse.class);
+        when(batch.getResponses()).thenReturn(Collections.unmodifiableList(responses));
+        when(batch.getSuccessCount()).thenReturn(count);
+        return batch;
+    }
+
+    static List<String> deviceIds(int count) {
+        List<String> deviceIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            deviceIds.add("token-" + i);
+        }
+        return deviceIds;
+    }
+}